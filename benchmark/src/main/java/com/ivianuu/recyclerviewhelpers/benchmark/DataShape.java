@@ -0,0 +1,64 @@
+package com.ivianuu.recyclerviewhelpers.benchmark;
+
+import java.util.Random;
+
+/**
+ * Distributions of headers in a list of the benchmarks
+ */
+final class DataShape {
+
+    static final String SPARSE = "sparse";
+    static final String DENSE = "dense";
+    static final String CLUSTERED = "clustered";
+
+    private DataShape() {
+    }
+
+    /**
+     * Returns which items of the list are headers
+     */
+    static boolean[] headers(String shape, int itemCount, long seed) {
+        boolean[] headers = new boolean[itemCount];
+        Random random = new Random(seed);
+        switch (shape) {
+            case SPARSE:
+                // A header every 100 items
+                for (int i = 0; i < itemCount; i += 100) {
+                    headers[i] = true;
+                }
+                break;
+            case DENSE:
+                // Every third item is a header
+                for (int i = 0; i < itemCount; i += 3) {
+                    headers[i] = true;
+                }
+                break;
+            case CLUSTERED:
+                // Runs of adjacent headers between long sections
+                int position = 0;
+                while (position < itemCount) {
+                    int runLength = 1 + random.nextInt(8);
+                    for (int i = 0; i < runLength && position < itemCount; i++) {
+                        headers[position++] = true;
+                    }
+                    position += 1 + random.nextInt(500);
+                }
+                break;
+            default:
+                throw new IllegalArgumentException("unknown shape " + shape);
+        }
+        return headers;
+    }
+
+    /**
+     * Returns random positions of a list of the given size
+     */
+    static int[] randomPositions(int count, int itemCount, long seed) {
+        Random random = new Random(seed);
+        int[] positions = new int[count];
+        for (int i = 0; i < count; i++) {
+            positions[i] = random.nextInt(itemCount);
+        }
+        return positions;
+    }
+}
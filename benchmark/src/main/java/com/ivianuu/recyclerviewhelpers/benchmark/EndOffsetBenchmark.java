@@ -0,0 +1,74 @@
+package com.ivianuu.recyclerviewhelpers.benchmark;
+
+import com.ivianuu.recyclerviewhelpers.core.endlessscroll.PagingState;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Evaluates the end offset as it happens for each scroll event
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EndOffsetBenchmark {
+
+    @Param({"1000", "100000"})
+    public int totalItemCount;
+
+    @Param({"1", "10"})
+    public int loadingTriggerThreshold;
+
+    private PagingState pagingState;
+    private int lastVisibleItemPosition;
+
+    @Setup
+    public void setUp() {
+        pagingState = new PagingState(loadingTriggerThreshold);
+        // The first page is loaded
+        pagingState.startLoading();
+        pagingState.checkEndOffset(totalItemCount, 0, false);
+    }
+
+    /**
+     * Scrolls through the list without reaching its end
+     */
+    @Benchmark
+    public int scroll() {
+        lastVisibleItemPosition++;
+        if (lastVisibleItemPosition >= totalItemCount - loadingTriggerThreshold - 1) {
+            lastVisibleItemPosition = 0;
+        }
+        return pagingState.checkEndOffset(totalItemCount, lastVisibleItemPosition, false);
+    }
+
+    /**
+     * Reaches the end of the list, requests the next page and finishes loading it
+     */
+    @Benchmark
+    public int reachEnd() {
+        int flags = pagingState.checkEndOffset(totalItemCount, totalItemCount - 1, false);
+        if ((flags & PagingState.FLAG_LOAD_MORE) != 0) {
+            pagingState.startLoading();
+            pagingState.nextPage();
+        }
+        // The page arrives but the list keeps its size so each invocation loads again
+        pagingState.restore(pagingState.getCurrentPage(), totalItemCount - 1, totalItemCount,
+                pagingState.isLoading(), false, null);
+        return flags;
+    }
+}
@@ -0,0 +1,114 @@
+package com.ivianuu.recyclerviewhelpers.benchmark;
+
+import com.ivianuu.recyclerviewhelpers.core.stickyheaders.HeaderIndex;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Builds the header index, looks up headers and shifts it for inserts, removals and moves
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HeaderIndexBenchmark {
+
+    private static final int LOOKUPS = 1024;
+
+    @Param({"10000", "100000", "1000000"})
+    public int itemCount;
+
+    @Param({DataShape.SPARSE, DataShape.DENSE, DataShape.CLUSTERED})
+    public String shape;
+
+    private boolean[] headers;
+    private HeaderIndex.HeaderPredicate predicate;
+    private HeaderIndex headerIndex;
+    private int[] lookupPositions;
+
+    // Inserted items are never headers so the index looks the same after each insert and removal pair
+    private final HeaderIndex.HeaderPredicate noHeaders = new HeaderIndex.HeaderPredicate() {
+        @Override
+        public boolean isHeader(int position) {
+            return false;
+        }
+    };
+
+    @Setup(Level.Trial)
+    public void setUpTrial() {
+        headers = DataShape.headers(shape, itemCount, 42);
+        predicate = new HeaderIndex.HeaderPredicate() {
+            @Override
+            public boolean isHeader(int position) {
+                return headers[position];
+            }
+        };
+        lookupPositions = DataShape.randomPositions(LOOKUPS, itemCount, 7);
+    }
+
+    @Setup(Level.Iteration)
+    public void setUpIteration() {
+        headerIndex = new HeaderIndex();
+        headerIndex.rebuild(itemCount, predicate);
+    }
+
+    @Benchmark
+    public HeaderIndex build() {
+        HeaderIndex index = new HeaderIndex();
+        index.rebuild(itemCount, predicate);
+        return index;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LOOKUPS)
+    public void lookup(Blackhole blackhole) {
+        for (int position : lookupPositions) {
+            blackhole.consume(headerIndex.findHeaderIndexOrBefore(position));
+        }
+    }
+
+    @Benchmark
+    public void insertAtStart() {
+        headerIndex.onItemRangeInserted(0, 1, noHeaders);
+        headerIndex.onItemRangeRemoved(0, 1);
+    }
+
+    @Benchmark
+    public void insertInMiddle() {
+        int position = itemCount / 2;
+        headerIndex.onItemRangeInserted(position, 1, noHeaders);
+        headerIndex.onItemRangeRemoved(position, 1);
+    }
+
+    @Benchmark
+    public void removeAtStart() {
+        // Removes a header when the list starts with one and puts it back
+        headerIndex.onItemRangeRemoved(0, 1);
+        headerIndex.onItemRangeInserted(0, 1, predicate);
+    }
+
+    @Benchmark
+    public void moveAcrossHalf() {
+        int from = itemCount / 4;
+        int to = itemCount / 4 * 3;
+        headerIndex.onItemRangeMoved(from, to, 1);
+        headerIndex.onItemRangeMoved(to, from, 1);
+    }
+}
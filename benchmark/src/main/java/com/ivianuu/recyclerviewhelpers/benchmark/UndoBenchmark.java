@@ -0,0 +1,116 @@
+package com.ivianuu.recyclerviewhelpers.benchmark;
+
+import com.ivianuu.recyclerviewhelpers.core.undo.ListUpdateListener;
+import com.ivianuu.recyclerviewhelpers.core.undo.UndoEngine;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Removes k of n items and restores them with undo
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UndoBenchmark {
+
+    static final String CONTIGUOUS = "contiguous";
+    static final String RANDOM = "random";
+
+    @Param({"10000", "100000"})
+    public int itemCount;
+
+    @Param({"1", "100", "5000"})
+    public int removedCount;
+
+    @Param({CONTIGUOUS, RANDOM})
+    public String shape;
+
+    private final List<Integer> dataSet = new ArrayList<>();
+    private UndoEngine<Integer> engine;
+    private int[] positions;
+
+    @Setup
+    public void setUp() {
+        dataSet.clear();
+        for (int i = 0; i < itemCount; i++) {
+            dataSet.add(i);
+        }
+
+        engine = new UndoEngine.Builder<Integer>()
+                .withAdapter(new UndoEngine.UndoAdapter<Integer>() {
+                    @Override
+                    public List<Integer> getDataSet() {
+                        return dataSet;
+                    }
+                }, NO_OP_LISTENER)
+                .build();
+
+        if (CONTIGUOUS.equals(shape)) {
+            positions = new int[removedCount];
+            int start = (itemCount - removedCount) / 2;
+            for (int i = 0; i < removedCount; i++) {
+                positions[i] = start + i;
+            }
+        } else {
+            // Distinct sorted random positions
+            Random random = new Random(42);
+            boolean[] removed = new boolean[itemCount];
+            int count = 0;
+            while (count < removedCount) {
+                int position = random.nextInt(itemCount);
+                if (!removed[position]) {
+                    removed[position] = true;
+                    count++;
+                }
+            }
+            positions = new int[removedCount];
+            for (int i = 0, j = 0; i < itemCount; i++) {
+                if (removed[i]) positions[j++] = i;
+            }
+        }
+    }
+
+    @Benchmark
+    public boolean removeAndUndo() {
+        // The engine keeps the array, hand it a copy
+        engine.remove(Arrays.copyOf(positions, positions.length));
+        return engine.undo();
+    }
+
+    private static final ListUpdateListener NO_OP_LISTENER = new ListUpdateListener() {
+        @Override
+        public void onInserted(int position, int count) {
+        }
+
+        @Override
+        public void onRemoved(int position, int count) {
+        }
+
+        @Override
+        public void onMoved(int fromPosition, int toPosition) {
+        }
+
+        @Override
+        public void onChanged(int position, int count) {
+        }
+    };
+}
@@ -0,0 +1,187 @@
+package com.ivianuu.recyclerviewhelpers.core.endlessscroll;
+
+/**
+ * Paging state of an endless list, decides when the next page has to be loaded.
+ *
+ * The owner reports the item count and the last visible position with {@link #checkEndOffset(int, int, boolean)}
+ * and acts on the returned flags.
+ *
+ * In keyset mode a load only ends with {@link #setContinuationToken(String, int)}, {@link #setLoadFailed()}
+ * or {@link #setAllItemsLoaded()}, items which are inserted meanwhile don't end it.
+ */
+public class PagingState {
+
+    /**
+     * The running load finished since the item count grew
+     */
+    public static final int FLAG_LOAD_FINISHED = 1;
+
+    /**
+     * A load is still running
+     */
+    public static final int FLAG_LOADING = 1 << 1;
+
+    /**
+     * The end of the list is reached and the next page has to be requested
+     */
+    public static final int FLAG_LOAD_MORE = 1 << 2;
+
+    private final int loadingTriggerThreshold;
+    private final boolean keyset;
+
+    private boolean loading;
+    private int previousTotal;
+    private int totalItemCount;
+    private int currentPage = 1;
+    private boolean allItemsLoaded;
+    private String continuationToken;
+
+    public PagingState(int loadingTriggerThreshold) {
+        this(loadingTriggerThreshold, false);
+    }
+
+    /**
+     * @param keyset whether loads are ended by the continuation token instead of the growing item count
+     */
+    public PagingState(int loadingTriggerThreshold, boolean keyset) {
+        this.loadingTriggerThreshold = loadingTriggerThreshold;
+        this.keyset = keyset;
+    }
+
+    /**
+     * Updates the state with the current item count and last visible position
+     *
+     * @param dispatchingPage whether items of a loaded page are still being added to the list,
+     *                        the load isn't finished before all of them were added
+     * @return a combination of {@link #FLAG_LOAD_FINISHED}, {@link #FLAG_LOADING} and {@link #FLAG_LOAD_MORE}
+     */
+    public int checkEndOffset(int totalItemCount, int lastVisibleItemPosition, boolean dispatchingPage) {
+        this.totalItemCount = totalItemCount;
+        int flags = 0;
+
+        // check if were finished with loading
+        if (loading) {
+            if (!keyset && totalItemCount > previousTotal && !dispatchingPage) {
+                loading = false;
+                previousTotal = totalItemCount;
+                flags |= FLAG_LOAD_FINISHED;
+            } else {
+                flags |= FLAG_LOADING;
+            }
+        }
+
+        // Check if end of the list is reached (counting threshold) or if there is no items at all
+        if ((totalItemCount - 1 - lastVisibleItemPosition) <= loadingTriggerThreshold || totalItemCount == 0) {
+            // Load more only if loading is not currently in progress and if there is more items to load,
+            // the end isn't reached before all items of the last page were added
+            if (!loading && !allItemsLoaded && !dispatchingPage) {
+                flags |= FLAG_LOAD_MORE;
+            }
+        }
+
+        return flags;
+    }
+
+    /**
+     * Marks the next page as requested, it's loading until the item count grows or in keyset mode
+     * until the next continuation token is set
+     */
+    public void startLoading() {
+        loading = true;
+    }
+
+    /**
+     * Advances to the next page and returns it
+     */
+    public int nextPage() {
+        return ++currentPage;
+    }
+
+    /**
+     * Requests the current page again the next time the end of the list is reached
+     *
+     * @return false if there was no load running
+     */
+    public boolean setLoadFailed() {
+        if (!loading) {
+            return false;
+        }
+
+        loading = false;
+        currentPage--;
+        return true;
+    }
+
+    public void setAllItemsLoaded() {
+        allItemsLoaded = true;
+        loading = false;
+    }
+
+    /**
+     * Sets the token of the next page, a {@code null} token marks the end of the data.
+     * A new token ends the running load even if the page added no items, e.g. because all of them were duplicates
+     *
+     * @return true if a running load was finished
+     */
+    public boolean setContinuationToken(String continuationToken, int totalItemCount) {
+        this.continuationToken = continuationToken;
+        this.totalItemCount = totalItemCount;
+        boolean wasLoading = loading;
+        if (continuationToken == null) {
+            setAllItemsLoaded();
+        } else if (loading) {
+            loading = false;
+            previousTotal = totalItemCount;
+        }
+        return wasLoading;
+    }
+
+    /**
+     * Starts over, the next load will request {@code page}
+     */
+    public void reset(int page) {
+        totalItemCount = 0;
+        previousTotal = 0;
+        // The load increments the page count
+        currentPage = page - 1;
+        allItemsLoaded = false;
+        continuationToken = null;
+    }
+
+    /**
+     * Restores a previously saved state
+     */
+    public void restore(int currentPage, int previousTotal, int totalItemCount, boolean loading,
+                        boolean allItemsLoaded, String continuationToken) {
+        this.currentPage = currentPage;
+        this.previousTotal = previousTotal;
+        this.totalItemCount = totalItemCount;
+        this.loading = loading;
+        this.allItemsLoaded = allItemsLoaded;
+        this.continuationToken = continuationToken;
+    }
+
+    public boolean isLoading() {
+        return loading;
+    }
+
+    public int getPreviousTotal() {
+        return previousTotal;
+    }
+
+    public int getTotalItemCount() {
+        return totalItemCount;
+    }
+
+    public int getCurrentPage() {
+        return currentPage;
+    }
+
+    public boolean isAllItemsLoaded() {
+        return allItemsLoaded;
+    }
+
+    public String getContinuationToken() {
+        return continuationToken;
+    }
+}
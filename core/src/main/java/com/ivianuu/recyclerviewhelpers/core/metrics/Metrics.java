@@ -0,0 +1,60 @@
+package com.ivianuu.recyclerviewhelpers.core.metrics;
+
+/**
+ * Holds the {@link MetricsListener} and the {@link Tracer} all helpers report to.
+ * Both are optional and can be changed at runtime, if none is set the helpers only pay for a field read.
+ */
+public final class Metrics {
+
+    private static volatile MetricsListener listener;
+    private static volatile Tracer tracer;
+
+    private Metrics() {
+        // no instances
+    }
+
+    public static void setListener(MetricsListener listener) {
+        Metrics.listener = listener;
+    }
+
+    /**
+     * Returns the current listener or null
+     */
+    public static MetricsListener getListener() {
+        return listener;
+    }
+
+    public static void setTracer(Tracer tracer) {
+        Metrics.tracer = tracer;
+    }
+
+    /**
+     * Begins a section if tracing is enabled, the returned tracer has to be passed
+     * to {@link #endSection(Tracer)} so sections stay balanced when tracing gets toggled in between
+     */
+    public static Tracer beginSection(String sectionName) {
+        Tracer tracer = Metrics.tracer;
+        if (tracer != null) {
+            tracer.beginSection(sectionName);
+        }
+        return tracer;
+    }
+
+    /**
+     * Ends the section which was begun by {@link #beginSection(String)}
+     */
+    public static void endSection(Tracer tracer) {
+        if (tracer != null) {
+            tracer.endSection();
+        }
+    }
+
+    /**
+     * Writes trace sections, sections are always begun and ended on the same thread
+     */
+    public interface Tracer {
+        void beginSection(String sectionName);
+
+        void endSection();
+    }
+}
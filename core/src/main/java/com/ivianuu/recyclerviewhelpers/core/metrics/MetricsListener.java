@@ -0,0 +1,45 @@
+package com.ivianuu.recyclerviewhelpers.core.metrics;
+
+/**
+ * Receives the metrics of all helpers, register it with {@link Metrics#setListener(MetricsListener)}.
+ * The callbacks are invoked on the thread the measured work ran on, mostly the main thread.
+ */
+public interface MetricsListener {
+
+    /**
+     * Called when the sticky header view was created for the header at {@code position}
+     */
+    void onStickyHeaderCreated(int position);
+
+    /**
+     * Called when the existing sticky header view was rebound to the header at {@code position}
+     */
+    void onStickyHeaderBound(int position);
+
+    /**
+     * Called when the sticky header view was scrapped
+     */
+    void onStickyHeaderScrapped();
+
+    /**
+     * Called after the header positions were rebuilt by going through the whole adapter
+     */
+    void onHeaderIndexRebuilt(int itemCount, int headerCount, long durationNanos);
+
+    /**
+     * Called when the data of a load more request arrived, the latency is measured from the moment
+     * the end offset was reached until the adapter received the new items
+     */
+    void onLoadMoreCompleted(int page, long latencyNanos);
+
+    /**
+     * Called when the loading row gets bound which means the user caught up with the loaded data
+     */
+    void onLoadingItemExposed(int itemCount);
+
+    /**
+     * Called after a batch of undo operations was committed, the latency is measured from
+     * the moment the batch was handed to the commit executor until all commits ran
+     */
+    void onUndoCommitted(int operationCount, long latencyNanos);
+}
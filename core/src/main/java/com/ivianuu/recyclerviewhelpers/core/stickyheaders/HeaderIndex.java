@@ -0,0 +1,247 @@
+package com.ivianuu.recyclerviewhelpers.core.stickyheaders;
+
+import java.util.Arrays;
+
+/**
+ * Sorted positions of the header items of a list, kept up to date with the range notifications of the list.
+ */
+public class HeaderIndex {
+
+    /**
+     * Tells which positions of the list are headers
+     */
+    public interface HeaderPredicate {
+        boolean isHeader(int position);
+    }
+
+    private int[] positions = new int[0];
+    private int size;
+
+    /**
+     * Returns the number of headers
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the position of the header at {@code index}
+     */
+    public int get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("index: " + index + ", size: " + size);
+        }
+        return positions[index];
+    }
+
+    /**
+     * Returns true if {@code position} is a header
+     */
+    public boolean contains(int position) {
+        return findHeaderIndex(position) != -1;
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    /**
+     * Replaces the positions with the ones of {@code other}, e.g. an index which was built on another thread
+     */
+    public void copyFrom(HeaderIndex other) {
+        if (positions.length < other.size) {
+            positions = new int[other.size];
+        }
+        System.arraycopy(other.positions, 0, positions, 0, other.size);
+        size = other.size;
+    }
+
+    /**
+     * Rebuilds the index by going through all items, to be used when there's no hint at what changed
+     */
+    public void rebuild(int itemCount, HeaderPredicate predicate) {
+        size = 0;
+        for (int i = 0; i < itemCount; i++) {
+            if (predicate.isHeader(i)) {
+                add(size, i);
+            }
+        }
+    }
+
+    /**
+     * Finds the header index of {@code position}.
+     */
+    public int findHeaderIndex(int position) {
+        int low = 0;
+        int high = size - 1;
+        while (low <= high) {
+            int middle = (low + high) / 2;
+            if (positions[middle] > position) {
+                high = middle - 1;
+            } else if (positions[middle] < position) {
+                low = middle + 1;
+            } else {
+                return middle;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Finds the header index of {@code position} or the one before it.
+     */
+    public int findHeaderIndexOrBefore(int position) {
+        int low = 0;
+        int high = size - 1;
+        while (low <= high) {
+            int middle = (low + high) / 2;
+            if (positions[middle] > position) {
+                high = middle - 1;
+            } else if (middle < size - 1 && positions[middle + 1] <= position) {
+                low = middle + 1;
+            } else {
+                return middle;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Finds the header index of {@code position} or the one next to it.
+     */
+    public int findHeaderIndexOrNext(int position) {
+        int low = 0;
+        int high = size - 1;
+        while (low <= high) {
+            int middle = (low + high) / 2;
+            if (middle > 0 && positions[middle - 1] >= position) {
+                high = middle - 1;
+            } else if (positions[middle] < position) {
+                low = middle + 1;
+            } else {
+                return middle;
+            }
+        }
+        return -1;
+    }
+
+    public void onItemRangeInserted(int positionStart, int itemCount, HeaderPredicate predicate) {
+        // Shift headers below down.
+        if (size > 0) {
+            for (int i = findHeaderIndexOrNext(positionStart); i != -1 && i < size; i++) {
+                positions[i] += itemCount;
+            }
+        }
+
+        // Add new headers.
+        for (int i = positionStart; i < positionStart + itemCount; i++) {
+            if (predicate.isHeader(i)) {
+                int headerIndex = findHeaderIndexOrNext(i);
+                add(headerIndex != -1 ? headerIndex : size, i);
+            }
+        }
+    }
+
+    public void onItemRangeRemoved(int positionStart, int itemCount) {
+        if (size > 0) {
+            // Remove headers.
+            for (int i = positionStart + itemCount - 1; i >= positionStart; i--) {
+                int index = findHeaderIndex(i);
+                if (index != -1) {
+                    removeAt(index);
+                }
+            }
+
+            // Shift headers below up.
+            for (int i = findHeaderIndexOrNext(positionStart + itemCount); i != -1 && i < size; i++) {
+                positions[i] -= itemCount;
+            }
+        }
+    }
+
+    /**
+     * Re-evaluates the changed items, they might have become headers or stopped being one
+     */
+    public void onItemRangeChanged(int positionStart, int itemCount, HeaderPredicate predicate) {
+        for (int i = positionStart; i < positionStart + itemCount; i++) {
+            int index = findHeaderIndexOrNext(i);
+            boolean wasHeader = index != -1 && positions[index] == i;
+            boolean isHeader = predicate.isHeader(i);
+            if (isHeader && !wasHeader) {
+                add(index != -1 ? index : size, i);
+            } else if (!isHeader && wasHeader) {
+                removeAt(index);
+            }
+        }
+    }
+
+    /**
+     * Moves the block of {@code itemCount} items at {@code fromPosition} so that it starts at {@code toPosition}
+     */
+    public void onItemRangeMoved(int fromPosition, int toPosition, int itemCount) {
+        if (size == 0 || fromPosition == toPosition || itemCount <= 0) {
+            return;
+        }
+
+        // Only headers between both ends of the move change and they stay in that window,
+        // the moved ones and the ones they jump over just swap places.
+        int windowStart = Math.min(fromPosition, toPosition);
+        int windowEnd = Math.max(fromPosition, toPosition) + itemCount;
+        int startIndex = findHeaderIndexOrNext(windowStart);
+        if (startIndex == -1) {
+            return;
+        }
+
+        int endIndex = startIndex;
+        int movedCount = 0;
+        while (endIndex < size && positions[endIndex] < windowEnd) {
+            int headerPos = positions[endIndex];
+            if (headerPos >= fromPosition && headerPos < fromPosition + itemCount) {
+                // Shift moved headers by toPosition - fromPosition.
+                positions[endIndex] = headerPos + (toPosition - fromPosition);
+                movedCount++;
+            } else {
+                // Shift headers in-between by -itemCount (reverse if upwards).
+                positions[endIndex] = fromPosition < toPosition ? headerPos - itemCount : headerPos + itemCount;
+            }
+            endIndex++;
+        }
+
+        // Moved headers were the first run of the window if moved down and the last one if moved up.
+        if (movedCount > 0 && movedCount < endIndex - startIndex) {
+            rotate(startIndex, endIndex, fromPosition < toPosition
+                    ? movedCount : endIndex - startIndex - movedCount);
+        }
+    }
+
+    /**
+     * Rotates {@code positions[start, end)} to the left by {@code distance} in place
+     */
+    private void rotate(int start, int end, int distance) {
+        reverse(start, start + distance);
+        reverse(start + distance, end);
+        reverse(start, end);
+    }
+
+    private void reverse(int start, int end) {
+        for (int i = start, j = end - 1; i < j; i++, j--) {
+            int tmp = positions[i];
+            positions[i] = positions[j];
+            positions[j] = tmp;
+        }
+    }
+
+    private void add(int index, int position) {
+        if (size == positions.length) {
+            positions = Arrays.copyOf(positions, Math.max(8, size * 2));
+        }
+        System.arraycopy(positions, index, positions, index + 1, size - index);
+        positions[index] = position;
+        size++;
+    }
+
+    private void removeAt(int index) {
+        System.arraycopy(positions, index + 1, positions, index, size - index - 1);
+        size--;
+    }
+}
@@ -0,0 +1,236 @@
+package com.ivianuu.recyclerviewhelpers.core.undo;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+/**
+ * Applies and reverts operations on a copy of the data set on the executor, then swaps the copy in and
+ * dispatches the recorded ranges on the main thread. The main thread shares the data set with the executor
+ * and resolves the stable ids of the operation, the rest of the work happens on the executor.
+ *
+ * Jobs run one after another, each on the result of the previous one. A result is dropped and its job runs
+ * again if the data set was modified in the meantime.
+ */
+class BackgroundApplier<M> {
+
+    private final Executor executor;
+    private final UndoTimer mainThreadTimer;
+    private final UndoEngine.DataSetSwapper<M> dataSetSwapper;
+    private final UndoEngine.PositionLookup positionLookup;
+    private final ListUpdateListener listUpdateListener;
+    private final Runnable idleCallback;
+
+    private final ArrayDeque<Job<M>> jobs = new ArrayDeque<>();
+    private int generation;
+
+    BackgroundApplier(Executor executor, UndoTimer mainThreadTimer, UndoEngine.DataSetSwapper<M> dataSetSwapper,
+                      UndoEngine.PositionLookup positionLookup, ListUpdateListener listUpdateListener,
+                      Runnable idleCallback) {
+        this.executor = executor;
+        this.mainThreadTimer = mainThreadTimer;
+        this.dataSetSwapper = dataSetSwapper;
+        this.positionLookup = positionLookup;
+        this.listUpdateListener = listUpdateListener;
+        this.idleCallback = idleCallback;
+    }
+
+    /**
+     * Returns whether a job is running, following changes have to be queued behind it
+     */
+    boolean isBusy() {
+        return !jobs.isEmpty();
+    }
+
+    void submit(UndoOperation<M> operation, boolean revert) {
+        jobs.addLast(new Job<>(operation, revert));
+        if (jobs.size() == 1) {
+            start();
+        }
+    }
+
+    private void start() {
+        final Job<M> job = jobs.peekFirst();
+        final List<M> base = dataSetSwapper.shareDataSet();
+        final int baseModificationCount = dataSetSwapper.getModificationCount();
+        final int jobGeneration = ++generation;
+        final RecordingListener recorder = new RecordingListener();
+        // The lookup of the adapter only knows the current data set and may only be used on the main thread
+        final UndoEngine.PositionLookup resolvedLookup = job.revert && positionLookup != null
+                ? new ResolvedLookup(job.operation.getLookupIds(), positionLookup, recorder) : null;
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                final List<M> dataSet = new ArrayList<>(base);
+                if (job.revert) {
+                    job.operation.revert(dataSet, recorder, resolvedLookup);
+                } else {
+                    job.operation.apply(dataSet, recorder);
+                }
+
+                mainThreadTimer.postDelayed(new Runnable() {
+                    @Override
+                    public void run() {
+                        finish(jobGeneration, baseModificationCount, dataSet, recorder);
+                    }
+                }, 0);
+            }
+        });
+    }
+
+    private void finish(int jobGeneration, int baseModificationCount, List<M> dataSet, RecordingListener recorder) {
+        if (jobGeneration != generation) {
+            return;
+        }
+        if (dataSetSwapper.getModificationCount() != baseModificationCount) {
+            // The data set was modified while the job ran so the result is stale
+            start();
+            return;
+        }
+
+        jobs.pollFirst();
+        dataSetSwapper.swapDataSet(dataSet);
+        recorder.dispatchTo(listUpdateListener);
+
+        if (!jobs.isEmpty()) {
+            start();
+        } else {
+            idleCallback.run();
+        }
+    }
+
+    private static class Job<M> {
+        private final UndoOperation<M> operation;
+        private final boolean revert;
+
+        private Job(UndoOperation<M> operation, boolean revert) {
+            this.operation = operation;
+            this.revert = revert;
+        }
+    }
+
+    /**
+     * Positions of the ids of an operation, resolved on the main thread before the job starts.
+     * The positions refer to the shared data set, the job translates them through the ranges it changed so far
+     */
+    private static class ResolvedLookup implements UndoEngine.PositionLookup {
+
+        private final long[] ids;
+        private final int[] positions;
+        private final RecordingListener recorder;
+
+        private ResolvedLookup(long[] ids, UndoEngine.PositionLookup positionLookup, RecordingListener recorder) {
+            this.ids = ids.clone();
+            Arrays.sort(this.ids);
+            positions = new int[this.ids.length];
+            for (int i = 0; i < this.ids.length; i++) {
+                positions[i] = positionLookup.findPositionForId(this.ids[i]);
+            }
+            this.recorder = recorder;
+        }
+
+        @Override
+        public int findPositionForId(long id) {
+            int index = Arrays.binarySearch(ids, id);
+            if (index < 0 || positions[index] == -1) {
+                return -1;
+            }
+            return recorder.translate(positions[index]);
+        }
+    }
+
+    /**
+     * Records the ranges as type, position and count triples
+     */
+    private static class RecordingListener implements ListUpdateListener {
+
+        private static final int INSERTED = 0;
+        private static final int REMOVED = 1;
+        private static final int MOVED = 2;
+        private static final int CHANGED = 3;
+
+        private int[] updates = new int[12];
+        private int size;
+
+        @Override
+        public void onInserted(int position, int count) {
+            add(INSERTED, position, count);
+        }
+
+        @Override
+        public void onRemoved(int position, int count) {
+            add(REMOVED, position, count);
+        }
+
+        @Override
+        public void onMoved(int fromPosition, int toPosition) {
+            add(MOVED, fromPosition, toPosition);
+        }
+
+        @Override
+        public void onChanged(int position, int count) {
+            add(CHANGED, position, count);
+        }
+
+        private void add(int type, int first, int second) {
+            if (size + 3 > updates.length) {
+                updates = Arrays.copyOf(updates, updates.length * 2);
+            }
+            updates[size++] = type;
+            updates[size++] = first;
+            updates[size++] = second;
+        }
+
+        /**
+         * Returns where the item at the position before the recorded updates is now or -1 if it was removed
+         */
+        private int translate(int position) {
+            for (int i = 0; i < size && position != -1; i += 3) {
+                int first = updates[i + 1];
+                int second = updates[i + 2];
+                switch (updates[i]) {
+                    case INSERTED:
+                        if (position >= first) position += second;
+                        break;
+                    case REMOVED:
+                        if (position >= first + second) {
+                            position -= second;
+                        } else if (position >= first) {
+                            position = -1;
+                        }
+                        break;
+                    case MOVED:
+                        if (position == first) {
+                            position = second;
+                        } else {
+                            if (position > first) position--;
+                            if (position >= second) position++;
+                        }
+                        break;
+                }
+            }
+            return position;
+        }
+
+        private void dispatchTo(ListUpdateListener listener) {
+            for (int i = 0; i < size; i += 3) {
+                switch (updates[i]) {
+                    case INSERTED:
+                        listener.onInserted(updates[i + 1], updates[i + 2]);
+                        break;
+                    case REMOVED:
+                        listener.onRemoved(updates[i + 1], updates[i + 2]);
+                        break;
+                    case MOVED:
+                        listener.onMoved(updates[i + 1], updates[i + 2]);
+                        break;
+                    case CHANGED:
+                        listener.onChanged(updates[i + 1], updates[i + 2]);
+                        break;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package com.ivianuu.recyclerviewhelpers.core.undo;
+
+import com.ivianuu.recyclerviewhelpers.core.metrics.Metrics;
+import com.ivianuu.recyclerviewhelpers.core.metrics.MetricsListener;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Collects the commits of a time window, merges consecutive removals into one and runs them on the executor
+ */
+class CommitPipeline<M> {
+
+    private final Executor executor;
+    private final long batchWindowMillis;
+    private final UndoTimer timer;
+
+    private final ArrayList<UndoOperation<M>> pendingOperations = new ArrayList<>();
+    private boolean flushScheduled;
+
+    // Number of batches which were handed to the executor but didn't finish yet
+    private final Object lock = new Object();
+    private int runningBatches;
+
+    CommitPipeline(Executor executor, long batchWindowMillis, UndoTimer timer) {
+        this.executor = executor;
+        this.timer = timer;
+        this.batchWindowMillis = batchWindowMillis;
+    }
+
+    void enqueue(UndoOperation<M> operation) {
+        pendingOperations.add(operation);
+        if (batchWindowMillis <= 0) {
+            flush();
+        } else if (!flushScheduled) {
+            flushScheduled = true;
+            timer.postDelayed(flushRunnable, batchWindowMillis);
+        }
+    }
+
+    /**
+     * Hands all pending commits to the executor without waiting for the end of the window
+     */
+    void flush() {
+        if (flushScheduled) {
+            flushScheduled = false;
+            timer.cancel(flushRunnable);
+        }
+        if (pendingOperations.isEmpty()) {
+            return;
+        }
+
+        final List<UndoOperation<M>> batch = merge(pendingOperations);
+        pendingOperations.clear();
+
+        synchronized (lock) {
+            runningBatches++;
+        }
+        final long flushedAtNs = Metrics.getListener() != null ? System.nanoTime() : 0;
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                Metrics.Tracer tracer = Metrics.beginSection("Undo.commit");
+                try {
+                    for (int i = 0, size = batch.size(); i < size; i++) {
+                        batch.get(i).commit();
+                    }
+
+                    MetricsListener metricsListener = Metrics.getListener();
+                    if (metricsListener != null && flushedAtNs != 0) {
+                        metricsListener.onUndoCommitted(batch.size(), System.nanoTime() - flushedAtNs);
+                    }
+                } finally {
+                    Metrics.endSection(tracer);
+                    synchronized (lock) {
+                        runningBatches--;
+                        lock.notifyAll();
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * Flushes and waits until all commits ran
+     */
+    boolean await(long timeout, TimeUnit unit) throws InterruptedException {
+        flush();
+
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        synchronized (lock) {
+            while (runningBatches > 0) {
+                long remainingNanos = deadline - System.nanoTime();
+                if (remainingNanos <= 0) {
+                    return false;
+                }
+                TimeUnit.NANOSECONDS.timedWait(lock, remainingNanos);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Merges consecutive removals into one, the parts of composite operations are merged as well
+     */
+    @SuppressWarnings("unchecked")
+    static <M> List<UndoOperation<M>> merge(List<UndoOperation<M>> operations) {
+        List<UndoOperation<M>> merged = new ArrayList<>(operations.size());
+        merge(operations, merged);
+        return merged;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <M> void merge(List<UndoOperation<M>> operations, List<UndoOperation<M>> merged) {
+        for (int i = 0, size = operations.size(); i < size; i++) {
+            UndoOperation<M> operation = operations.get(i);
+            if (operation instanceof CompositeOperation) {
+                merge(((CompositeOperation<M>) operation).getParts(), merged);
+                continue;
+            }
+            int last = merged.size() - 1;
+            if (last >= 0 && merged.get(last) instanceof RemoveOperation && operation instanceof RemoveOperation) {
+                merged.set(last, RemoveOperation.merge(
+                        (RemoveOperation<M>) merged.get(last), (RemoveOperation<M>) operation));
+            } else {
+                merged.add(operation);
+            }
+        }
+    }
+
+    private final Runnable flushRunnable = new Runnable() {
+        @Override
+        public void run() {
+            flushScheduled = false;
+            flush();
+        }
+    };
+}
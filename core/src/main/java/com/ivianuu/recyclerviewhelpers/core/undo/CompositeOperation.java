@@ -0,0 +1,85 @@
+package com.ivianuu.recyclerviewhelpers.core.undo;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Groups operations into one history entry, e.g. a burst of swipes.
+ * The parts are applied in order and reverted in reverse order.
+ */
+class CompositeOperation<M> extends UndoOperation<M> {
+
+    private final List<UndoOperation<M>> parts = new ArrayList<>();
+    private final List<M> retainedModels = new ArrayList<>();
+
+    /**
+     * Adds a part which was already applied after the previous parts
+     */
+    void add(UndoOperation<M> part) {
+        parts.add(part);
+        retainedModels.addAll(part.getRetainedModels());
+    }
+
+    List<UndoOperation<M>> getParts() {
+        return parts;
+    }
+
+    @Override
+    protected void apply(List<M> dataSet, ListUpdateListener listener) {
+        for (int i = 0, size = parts.size(); i < size; i++) {
+            parts.get(i).apply(dataSet, listener);
+        }
+    }
+
+    @Override
+    protected void revert(List<M> dataSet, ListUpdateListener listener) {
+        for (int i = parts.size() - 1; i >= 0; i--) {
+            parts.get(i).revert(dataSet, listener);
+        }
+    }
+
+    @Override
+    void revert(List<M> dataSet, ListUpdateListener listener, UndoEngine.PositionLookup positionLookup) {
+        for (int i = parts.size() - 1; i >= 0; i--) {
+            parts.get(i).revert(dataSet, listener, positionLookup);
+        }
+    }
+
+    @Override
+    long[] getLookupIds() {
+        long[] ids = NO_IDS;
+        for (int i = 0, size = parts.size(); i < size; i++) {
+            long[] partIds = parts.get(i).getLookupIds();
+            if (partIds.length > 0) {
+                long[] merged = Arrays.copyOf(ids, ids.length + partIds.length);
+                System.arraycopy(partIds, 0, merged, ids.length, partIds.length);
+                ids = merged;
+            }
+        }
+        return ids;
+    }
+
+    @Override
+    protected void commit() {
+        // Consecutive removals are committed as one
+        List<UndoOperation<M>> merged = CommitPipeline.merge(parts);
+        for (int i = 0, size = merged.size(); i < size; i++) {
+            merged.get(i).commit();
+        }
+    }
+
+    @Override
+    protected List<M> getRetainedModels() {
+        return retainedModels;
+    }
+
+    @Override
+    protected int getAffectedItemCount() {
+        int count = 0;
+        for (int i = 0, size = parts.size(); i < size; i++) {
+            count += parts.get(i).getAffectedItemCount();
+        }
+        return count;
+    }
+}
@@ -0,0 +1,103 @@
+package com.ivianuu.recyclerviewhelpers.core.undo;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Inserts a contiguous range of items
+ */
+class InsertOperation<M> extends UndoOperation<M> {
+
+    private final int positionStart;
+    private final List<M> models;
+    private final UndoEngine.CommitListener<M> commitListener;
+
+    // Stable id mode
+    private UndoEngine.ItemIdProvider<M> idProvider;
+    private UndoEngine.PositionLookup positionLookup;
+
+    InsertOperation(int positionStart, List<M> models, UndoEngine.CommitListener<M> commitListener) {
+        this.positionStart = positionStart;
+        this.models = new ArrayList<>(models);
+        this.commitListener = commitListener;
+    }
+
+    /**
+     * Removes the inserted items by their ids on revert, wherever they are by then
+     */
+    InsertOperation<M> withStableIds(UndoEngine.ItemIdProvider<M> idProvider,
+                                     UndoEngine.PositionLookup positionLookup) {
+        this.idProvider = idProvider;
+        this.positionLookup = positionLookup;
+        return this;
+    }
+
+    @Override
+    protected void apply(List<M> dataSet, ListUpdateListener listener) {
+        dataSet.addAll(positionStart, models);
+        listener.onInserted(positionStart, models.size());
+    }
+
+    @Override
+    protected void revert(List<M> dataSet, ListUpdateListener listener) {
+        revert(dataSet, listener, positionLookup);
+    }
+
+    @Override
+    void revert(List<M> dataSet, ListUpdateListener listener, UndoEngine.PositionLookup positionLookup) {
+        if (idProvider != null) {
+            revertById(dataSet, listener, positionLookup);
+            return;
+        }
+
+        dataSet.subList(positionStart, positionStart + models.size()).clear();
+        listener.onRemoved(positionStart, models.size());
+    }
+
+    @Override
+    long[] getLookupIds() {
+        if (idProvider == null) {
+            return NO_IDS;
+        }
+        long[] ids = new long[models.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = idProvider.getItemId(models.get(i));
+        }
+        return ids;
+    }
+
+    private void revertById(List<M> dataSet, ListUpdateListener listener,
+                            UndoEngine.PositionLookup positionLookup) {
+        StableIdIndex<M> index = new StableIdIndex<>(dataSet, idProvider, positionLookup);
+        int[] positions = new int[models.size()];
+        int count = 0;
+        for (int i = 0, size = models.size(); i < size; i++) {
+            int position = index.findPosition(idProvider.getItemId(models.get(i)), positionStart + i);
+            if (position != -1) positions[count++] = position;
+        }
+        Arrays.sort(positions, 0, count);
+
+        // Remove each contiguous run from the back
+        int runEnd = count;
+        for (int i = count - 1; i >= 0; i--) {
+            if (i == 0 || positions[i - 1] != positions[i] - 1) {
+                dataSet.subList(positions[i], positions[i] + runEnd - i).clear();
+                listener.onRemoved(positions[i], runEnd - i);
+                runEnd = i;
+            }
+        }
+    }
+
+    @Override
+    protected int getAffectedItemCount() {
+        return models.size();
+    }
+
+    @Override
+    protected void commit() {
+        if (commitListener != null) {
+            commitListener.commitInsert(positionStart, models);
+        }
+    }
+}
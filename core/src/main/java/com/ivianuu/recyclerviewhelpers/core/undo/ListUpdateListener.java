@@ -0,0 +1,14 @@
+package com.ivianuu.recyclerviewhelpers.core.undo;
+
+/**
+ * Receives the range notifications of an {@link UndoOperation}, the {@link UndoEngine} forwards them to its listener
+ */
+public interface ListUpdateListener {
+    void onInserted(int position, int count);
+
+    void onRemoved(int position, int count);
+
+    void onMoved(int fromPosition, int toPosition);
+
+    void onChanged(int position, int count);
+}
@@ -0,0 +1,79 @@
+package com.ivianuu.recyclerviewhelpers.core.undo;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Moves a contiguous range of items so that its first item ends up at {@code toPosition}
+ */
+class MoveOperation<M> extends UndoOperation<M> {
+
+    private final int fromPosition;
+    private final int toPosition;
+    private final int itemCount;
+    private final UndoEngine.CommitListener<M> commitListener;
+
+    MoveOperation(int fromPosition, int toPosition, int itemCount, UndoEngine.CommitListener<M> commitListener) {
+        this.fromPosition = fromPosition;
+        this.toPosition = toPosition;
+        this.itemCount = itemCount;
+        this.commitListener = commitListener;
+    }
+
+    @Override
+    protected void apply(List<M> dataSet, ListUpdateListener listener) {
+        move(dataSet, listener, fromPosition, toPosition, itemCount);
+    }
+
+    @Override
+    protected void revert(List<M> dataSet, ListUpdateListener listener) {
+        move(dataSet, listener, toPosition, fromPosition, itemCount);
+    }
+
+    @Override
+    protected int getAffectedItemCount() {
+        return itemCount;
+    }
+
+    @Override
+    protected void commit() {
+        if (commitListener != null) {
+            commitListener.commitMove(fromPosition, toPosition, itemCount);
+        }
+    }
+
+    /**
+     * Rotates the affected range in place and notifies single moves for whichever side is shorter,
+     * the moved range or the items it passes
+     */
+    static <M> void move(List<M> dataSet, ListUpdateListener listener, int from, int to, int count) {
+        if (from == to || count == 0) {
+            return;
+        }
+
+        int distance = Math.abs(to - from);
+        if (from < to) {
+            Collections.rotate(dataSet.subList(from, to + count), -count);
+            if (count <= distance) {
+                for (int i = 0; i < count; i++) {
+                    listener.onMoved(from, to + count - 1);
+                }
+            } else {
+                for (int i = 0; i < distance; i++) {
+                    listener.onMoved(from + count + i, from + i);
+                }
+            }
+        } else {
+            Collections.rotate(dataSet.subList(to, from + count), count);
+            if (count <= distance) {
+                for (int i = 0; i < count; i++) {
+                    listener.onMoved(from + i, to + i);
+                }
+            } else {
+                for (int i = 0; i < distance; i++) {
+                    listener.onMoved(to, from + count - 1);
+                }
+            }
+        }
+    }
+}
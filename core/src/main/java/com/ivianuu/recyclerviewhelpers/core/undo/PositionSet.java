@@ -0,0 +1,53 @@
+package com.ivianuu.recyclerviewhelpers.core.undo;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Read only {@link java.util.Set} view of a sorted array of distinct positions
+ */
+class PositionSet extends AbstractSet<Integer> {
+
+    private final int[] positions;
+
+    PositionSet(int[] positions) {
+        this.positions = positions;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return o instanceof Integer && Arrays.binarySearch(positions, (Integer) o) >= 0;
+    }
+
+    @Override
+    public Iterator<Integer> iterator() {
+        return new Iterator<Integer>() {
+            private int index;
+
+            @Override
+            public boolean hasNext() {
+                return index < positions.length;
+            }
+
+            @Override
+            public Integer next() {
+                if (index >= positions.length) {
+                    throw new NoSuchElementException();
+                }
+                return positions[index++];
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+
+    @Override
+    public int size() {
+        return positions.length;
+    }
+}
@@ -0,0 +1,317 @@
+package com.ivianuu.recyclerviewhelpers.core.undo;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Collections;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * Removes the items at sorted distinct positions
+ */
+class RemoveOperation<M> extends UndoOperation<M> {
+
+    private final int[] positions;
+    private final List<M> models;
+    private final UndoEngine.UndoListener<M> undoListener;
+
+    // Ids of the removal in the journal, a merged removal has the ids of all of its parts
+    private UndoJournal<M> journal;
+    private long[] journalIds;
+
+    // Stable id mode, the id of the item before each contiguous run of removed items,
+    // runs at the start of the data set have no anchor. Every long is a valid id so there's no sentinel
+    private UndoEngine.ItemIdProvider<M> idProvider;
+    private UndoEngine.PositionLookup positionLookup;
+    private long[] anchorIds;
+    private boolean[] hasAnchor;
+
+    RemoveOperation(List<M> dataSet, int[] positions, UndoEngine.UndoListener<M> undoListener) {
+        this.positions = positions;
+        this.undoListener = undoListener;
+        models = new ArrayList<>(positions.length);
+        if (dataSet instanceof SplicingList) {
+            // Copy each contiguous run at once
+            SplicingList<M> splicingList = (SplicingList<M>) dataSet;
+            int runStart = 0;
+            for (int i = 0; i < positions.length; i++) {
+                if (i == positions.length - 1 || positions[i + 1] != positions[i] + 1) {
+                    models.addAll(splicingList.snapshot(positions[runStart], i - runStart + 1));
+                    runStart = i + 1;
+                }
+            }
+        } else {
+            for (int position : positions) {
+                models.add(dataSet.get(position));
+            }
+        }
+    }
+
+    private RemoveOperation(int[] positions, List<M> models, UndoEngine.UndoListener<M> undoListener) {
+        this.positions = positions;
+        this.models = models;
+        this.undoListener = undoListener;
+    }
+
+    /**
+     * Merges two consecutive removals into one, the positions of the second one are mapped back
+     * to the data set before the first one was applied
+     */
+    static <M> RemoveOperation<M> merge(RemoveOperation<M> first, RemoveOperation<M> second) {
+        int[] firstPositions = first.positions;
+        int[] secondPositions = second.positions;
+        int[] positions = new int[firstPositions.length + secondPositions.length];
+        List<M> models = new ArrayList<>(positions.length);
+
+        int i = 0;
+        int j = 0;
+        // Number of positions of the first removal which are before the current one of the second
+        int shift = 0;
+        while (i < firstPositions.length || j < secondPositions.length) {
+            if (j < secondPositions.length) {
+                while (shift < firstPositions.length && firstPositions[shift] <= secondPositions[j] + shift) {
+                    shift++;
+                }
+            }
+
+            if (j >= secondPositions.length
+                    || (i < firstPositions.length && firstPositions[i] < secondPositions[j] + shift)) {
+                positions[i + j] = firstPositions[i];
+                models.add(first.models.get(i));
+                i++;
+            } else {
+                positions[i + j] = secondPositions[j] + shift;
+                models.add(second.models.get(j));
+                j++;
+            }
+        }
+
+        RemoveOperation<M> merged = new RemoveOperation<>(positions, models, first.undoListener);
+        if (first.journal != null) {
+            merged.journal = first.journal;
+            merged.journalIds = new long[first.journalIds.length + second.journalIds.length];
+            System.arraycopy(first.journalIds, 0, merged.journalIds, 0, first.journalIds.length);
+            System.arraycopy(second.journalIds, 0, merged.journalIds, first.journalIds.length,
+                    second.journalIds.length);
+        }
+        return merged;
+    }
+
+    /**
+     * Records the item before each run, the runs get reinserted after them on revert
+     * even if the data set changed in the meantime
+     */
+    RemoveOperation<M> withStableIds(List<M> dataSet, UndoEngine.ItemIdProvider<M> idProvider,
+                                     UndoEngine.PositionLookup positionLookup) {
+        this.idProvider = idProvider;
+        this.positionLookup = positionLookup;
+        anchorIds = new long[positions.length];
+        hasAnchor = new boolean[positions.length];
+        for (int i = 0; i < positions.length; i++) {
+            if (i > 0 && positions[i - 1] == positions[i] - 1) {
+                anchorIds[i] = anchorIds[i - 1];
+                hasAnchor[i] = hasAnchor[i - 1];
+            } else if (positions[i] > 0) {
+                anchorIds[i] = idProvider.getItemId(dataSet.get(positions[i] - 1));
+                hasAnchor[i] = true;
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Records the removal as pending in the journal
+     */
+    void writeToJournal(UndoJournal<M> journal) {
+        this.journal = journal;
+        journalIds = new long[]{journal.appendPending(positions, models)};
+    }
+
+    /**
+     * Records that the removal won't be committed anymore
+     */
+    void discardFromJournal() {
+        if (journal != null) {
+            journal.appendReverted(journalIds);
+        }
+    }
+
+    @Override
+    protected void apply(List<M> dataSet, ListUpdateListener listener) {
+        removePositions(dataSet, positions);
+        // Notify each contiguous run from the back so the positions of the other runs stay valid
+        int runEnd = positions.length;
+        for (int i = runEnd - 1; i >= 0; i--) {
+            if (i == 0 || positions[i - 1] != positions[i] - 1) {
+                listener.onRemoved(positions[i], runEnd - i);
+                runEnd = i;
+            }
+        }
+    }
+
+    @Override
+    protected void revert(List<M> dataSet, ListUpdateListener listener) {
+        revert(dataSet, listener, positionLookup);
+    }
+
+    @Override
+    void revert(List<M> dataSet, ListUpdateListener listener, UndoEngine.PositionLookup positionLookup) {
+        if (idProvider != null) {
+            revertAfterAnchors(dataSet, listener, positionLookup);
+            return;
+        }
+
+        insertPositions(dataSet, positions, models);
+        // Notify each contiguous run from the front, each run is at its final position
+        int runStart = 0;
+        for (int i = 0, size = positions.length; i < size; i++) {
+            if (i == size - 1 || positions[i + 1] != positions[i] + 1) {
+                listener.onInserted(positions[runStart], i - runStart + 1);
+                runStart = i + 1;
+            }
+        }
+    }
+
+    @Override
+    long[] getLookupIds() {
+        if (idProvider == null) {
+            return NO_IDS;
+        }
+        long[] ids = new long[anchorIds.length];
+        int count = 0;
+        for (int i = 0; i < anchorIds.length; i++) {
+            if (hasAnchor[i] && (i == 0 || positions[i - 1] != positions[i] - 1)) {
+                ids[count++] = anchorIds[i];
+            }
+        }
+        return Arrays.copyOf(ids, count);
+    }
+
+    private void revertAfterAnchors(List<M> dataSet, ListUpdateListener listener,
+                                    UndoEngine.PositionLookup positionLookup) {
+        StableIdIndex<M> index = new StableIdIndex<>(dataSet, idProvider, positionLookup);
+
+        // Resolve the insert position of each run before the data set changes
+        int runCount = 0;
+        int[] runStarts = new int[positions.length];
+        int[] insertPositions = new int[positions.length];
+        for (int i = 0; i < positions.length; i++) {
+            if (i > 0 && positions[i - 1] == positions[i] - 1) continue;
+            // Position of the anchor once the items before it were removed
+            int recordedPosition = positions[i] - 1 - i;
+            int anchorPosition = hasAnchor[i] ? index.findPosition(anchorIds[i], recordedPosition) : -1;
+            if (anchorPosition == -1 && hasAnchor[i]) {
+                // The anchor is gone as well, insert the run where the anchor would be now
+                anchorPosition = Math.max(-1, Math.min(index.estimatePosition(recordedPosition),
+                        dataSet.size()) - 1);
+            }
+            runStarts[runCount] = i;
+            insertPositions[runCount] = anchorPosition + 1;
+            runCount++;
+        }
+
+        // Insert the runs from the back so the resolved positions of the others stay valid,
+        // runs with the same position keep their order
+        Integer[] order = new Integer[runCount];
+        for (int i = 0; i < runCount; i++) order[i] = i;
+        final int[] runInsertPositions = insertPositions;
+        Arrays.sort(order, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer lhs, Integer rhs) {
+                int result = Integer.valueOf(runInsertPositions[rhs]).compareTo(runInsertPositions[lhs]);
+                return result != 0 ? result : rhs.compareTo(lhs);
+            }
+        });
+        for (int run : order) {
+            int start = runStarts[run];
+            int end = run + 1 < runCount ? runStarts[run + 1] : positions.length;
+            dataSet.addAll(insertPositions[run], models.subList(start, end));
+            listener.onInserted(insertPositions[run], end - start);
+        }
+    }
+
+    @Override
+    protected void commit() {
+        if (undoListener != null) {
+            undoListener.commitRemove(new PositionSet(positions), models);
+        }
+        if (journal != null) {
+            journal.appendCommitted(journalIds);
+        }
+    }
+
+    @Override
+    protected List<M> getRetainedModels() {
+        return models;
+    }
+
+    /**
+     * Removes the sorted positions from the data set with a single compaction pass
+     */
+    private static <M> void removePositions(List<M> dataSet, int[] positions) {
+        int size = dataSet.size();
+        if (dataSet instanceof SplicingList) {
+            // Splice out each contiguous run from the back
+            int runEnd = positions.length;
+            for (int i = positions.length - 1; i >= 0; i--) {
+                if (i == 0 || positions[i - 1] != positions[i] - 1) {
+                    dataSet.subList(positions[i], positions[i] + runEnd - i).clear();
+                    runEnd = i;
+                }
+            }
+            return;
+        }
+        if (!(dataSet instanceof RandomAccess)) {
+            for (int i = positions.length - 1; i >= 0; i--) {
+                dataSet.remove(positions[i]);
+            }
+            return;
+        }
+
+        int write = positions[0];
+        int next = 0;
+        for (int read = positions[0]; read < size; read++) {
+            if (next < positions.length && positions[next] == read) {
+                next++;
+            } else {
+                dataSet.set(write++, dataSet.get(read));
+            }
+        }
+        dataSet.subList(write, size).clear();
+    }
+
+    /**
+     * Inserts the models at the sorted positions into the data set with a single expansion pass
+     */
+    private static <M> void insertPositions(List<M> dataSet, int[] positions, List<M> models) {
+        if (dataSet instanceof SplicingList) {
+            // Splice in each contiguous run from the front, each run is at its final position
+            int runStart = 0;
+            for (int i = 0; i < positions.length; i++) {
+                if (i == positions.length - 1 || positions[i + 1] != positions[i] + 1) {
+                    dataSet.addAll(positions[runStart], models.subList(runStart, i + 1));
+                    runStart = i + 1;
+                }
+            }
+            return;
+        }
+        if (!(dataSet instanceof RandomAccess)) {
+            for (int i = 0; i < positions.length; i++) {
+                dataSet.add(positions[i], models.get(i));
+            }
+            return;
+        }
+
+        int read = dataSet.size() - 1;
+        dataSet.addAll(Collections.<M>nCopies(positions.length, null));
+        int next = positions.length - 1;
+        for (int write = dataSet.size() - 1; next >= 0; write--) {
+            if (positions[next] == write) {
+                dataSet.set(write, models.get(next--));
+            } else {
+                dataSet.set(write, dataSet.get(read--));
+            }
+        }
+    }
+}
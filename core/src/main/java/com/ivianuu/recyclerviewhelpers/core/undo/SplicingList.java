@@ -0,0 +1,74 @@
+package com.ivianuu.recyclerviewhelpers.core.undo;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * List view of the data set of a {@link UndoEngine.SpliceAdapter}, structural changes are passed to its
+ * range splice methods so the operations can keep working on a {@link List}.
+ * {@code subList(from, to).clear()} removes a range and {@code addAll(index, models)} inserts one.
+ */
+class SplicingList<M> extends AbstractList<M> {
+
+    private final UndoEngine.UndoAdapter<M> adapter;
+    private final UndoEngine.SpliceAdapter<M> spliceAdapter;
+
+    SplicingList(UndoEngine.UndoAdapter<M> adapter, UndoEngine.SpliceAdapter<M> spliceAdapter) {
+        this.adapter = adapter;
+        this.spliceAdapter = spliceAdapter;
+    }
+
+    /**
+     * Returns a copy of the range
+     */
+    List<M> snapshot(int positionStart, int itemCount) {
+        return spliceAdapter.snapshotRange(positionStart, itemCount);
+    }
+
+    @Override
+    public M get(int index) {
+        return adapter.getDataSet().get(index);
+    }
+
+    @Override
+    public int size() {
+        return adapter.getDataSet().size();
+    }
+
+    @Override
+    public M set(int index, M element) {
+        return adapter.getDataSet().set(index, element);
+    }
+
+    @Override
+    public void add(int index, M element) {
+        spliceAdapter.insertRange(index, Collections.singletonList(element));
+        modCount++;
+    }
+
+    @Override
+    public M remove(int index) {
+        M removed = get(index);
+        spliceAdapter.removeRange(index, 1);
+        modCount++;
+        return removed;
+    }
+
+    @Override
+    public boolean addAll(int index, Collection<? extends M> c) {
+        if (c.isEmpty()) return false;
+        spliceAdapter.insertRange(index, new ArrayList<M>(c));
+        modCount++;
+        return true;
+    }
+
+    @Override
+    protected void removeRange(int fromIndex, int toIndex) {
+        if (fromIndex == toIndex) return;
+        spliceAdapter.removeRange(fromIndex, toIndex - fromIndex);
+        modCount++;
+    }
+}
@@ -0,0 +1,56 @@
+package com.ivianuu.recyclerviewhelpers.core.undo;
+
+import java.util.List;
+
+/**
+ * Finds the current positions of items by their stable ids while reverting an operation.
+ *
+ * The recorded position is checked first, then the recorded position shifted by the offset of the last item
+ * which had moved, so a page appended or prepended while the operation was pending costs O(1) per item.
+ * Only items which moved otherwise ask the {@link UndoEngine.PositionLookup}, so nothing gets indexed per undo.
+ * Positions are resolved before the data set gets changed.
+ */
+class StableIdIndex<M> {
+
+    private final List<M> dataSet;
+    private final UndoEngine.ItemIdProvider<M> idProvider;
+    private final UndoEngine.PositionLookup positionLookup;
+
+    private int offset;
+
+    StableIdIndex(List<M> dataSet, UndoEngine.ItemIdProvider<M> idProvider,
+                  UndoEngine.PositionLookup positionLookup) {
+        this.dataSet = dataSet;
+        this.idProvider = idProvider;
+        this.positionLookup = positionLookup;
+    }
+
+    /**
+     * Returns the current position of the item or -1 if it's not in the data set anymore
+     */
+    int findPosition(long id, int recordedPosition) {
+        if (offset != 0 && isAt(id, recordedPosition + offset)) {
+            return recordedPosition + offset;
+        }
+        if (isAt(id, recordedPosition)) {
+            return recordedPosition;
+        }
+
+        int position = positionLookup.findPositionForId(id);
+        if (position >= 0) {
+            offset = position - recordedPosition;
+        }
+        return position;
+    }
+
+    /**
+     * Returns where an item which is gone would be now, based on the offset of the last item which was found
+     */
+    int estimatePosition(int recordedPosition) {
+        return recordedPosition + offset;
+    }
+
+    private boolean isAt(long id, int position) {
+        return position >= 0 && position < dataSet.size() && idProvider.getItemId(dataSet.get(position)) == id;
+    }
+}
@@ -0,0 +1,792 @@
+package com.ivianuu.recyclerviewhelpers.core.undo;
+
+import com.ivianuu.recyclerviewhelpers.core.metrics.Metrics;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps the pending operations of a data set and commits them once they can't be undone anymore.
+ *
+ * The engine doesn't depend on a view, the {@link UndoPresenter} offers the operations to the user and the
+ * {@link UndoTimer} schedules the commit timeout and the batch window, so it can be driven by a fake clock in tests.
+ * The {@code UndoHelper} of the library uses it with a snackbar.
+ */
+public class UndoEngine<M> {
+
+    private final UndoEngine.UndoAdapter<M> adapter;
+    private final ListUpdateListener listUpdateListener;
+    private final SplicingList<M> splicingList;
+
+    private final UndoEngine.UndoListener<M> undoListener;
+    private final UndoEngine.CommitListener<M> commitListener;
+
+    // Stable id mode
+    private final UndoEngine.ItemIdProvider<M> idProvider;
+    private final UndoEngine.PositionLookup positionLookup;
+
+    private final UndoPresenter presenter;
+    private final UndoTimer timer;
+    private final long commitTimeoutMillis;
+
+    // Pending operations, the most recent one is last
+    private final ArrayDeque<History<M>> histories = new ArrayDeque<>();
+    private int pendingItemCount;
+    private long pendingByteCount;
+
+    // Budget of the pending operations, the oldest ones get committed once it's exceeded
+    private final int maxUndoOperations;
+    private final int maxUndoItems;
+    private final long maxUndoBytes;
+    private final UndoEngine.ItemSizeEstimator<M> itemSizeEstimator;
+
+    private final CommitPipeline<M> commitPipeline;
+
+    // The history swipes are merged into until the burst gets closed
+    private History<M> burst;
+
+    private final UndoJournal<M> journal;
+
+    // Large operations are applied on a copy of the data set in the background
+    private final BackgroundApplier<M> backgroundApplier;
+    private final int backgroundThreshold;
+    // Operations wait until the background applier is idle and the calls in front of them ran,
+    // so their positions are resolved against the data set with all previous operations applied
+    private final ArrayDeque<Runnable> deferredCalls = new ArrayDeque<>();
+    private boolean runningDeferredCalls;
+
+    private UndoEngine(Builder<M> builder) {
+        adapter = builder.adapter;
+        listUpdateListener = builder.listUpdateListener;
+        undoListener = builder.undoListener;
+        commitListener = builder.commitListener;
+
+        idProvider = builder.idProvider;
+        splicingList = adapter instanceof UndoEngine.SpliceAdapter
+                ? new SplicingList<>(adapter, (UndoEngine.SpliceAdapter<M>) adapter) : null;
+        positionLookup = adapter instanceof UndoEngine.PositionLookup ? (UndoEngine.PositionLookup) adapter : null;
+
+        presenter = builder.presenter;
+        timer = builder.timer;
+        commitTimeoutMillis = builder.commitTimeoutMillis;
+
+        maxUndoOperations = builder.maxUndoOperations;
+        maxUndoItems = builder.maxUndoItems;
+        maxUndoBytes = builder.maxUndoBytes;
+        itemSizeEstimator = builder.itemSizeEstimator;
+
+        commitPipeline = new CommitPipeline<>(builder.commitExecutor, builder.commitBatchWindowMillis, timer);
+
+        journal = builder.journal;
+        if (journal != null) {
+            // Resolve the removals which were pending when the process died, reading the file is left to the
+            // sync executor of the journal
+            journal.replayInBackground(builder.journalRecoveryPolicy, undoListener, builder.commitExecutor);
+        }
+
+        if (builder.backgroundExecutor != null) {
+            backgroundApplier = new BackgroundApplier<>(builder.backgroundExecutor, timer,
+                    (UndoEngine.DataSetSwapper<M>) adapter, positionLookup, listUpdateListener,
+                    runDeferredCallsRunnable);
+        } else {
+            backgroundApplier = null;
+        }
+        backgroundThreshold = builder.backgroundThreshold;
+    }
+
+    /**
+     * Drops all pending operations without reverting or committing them
+     */
+    public void cancel() {
+        cancelCommitTimeout();
+        if (presenter != null) presenter.dismiss();
+        for (History<M> history : histories) {
+            discardFromJournal(history.operation);
+        }
+        histories.clear();
+        deferredCalls.clear();
+        burst = null;
+        pendingItemCount = 0;
+        pendingByteCount = 0;
+    }
+
+    /**
+     * Reverts the most recent pending operation
+     * @return whether there was an operation to undo
+     */
+    public boolean undo() {
+        if (!deferredCalls.isEmpty() && !runningDeferredCalls) {
+            // Undo the operations in the order they were called
+            deferredCalls.addLast(new Runnable() {
+                @Override
+                public void run() {
+                    undo();
+                }
+            });
+            return true;
+        }
+        History<M> history = histories.pollLast();
+        if (history == null) return false;
+        burst = null;
+        onHistoryRemoved(history);
+        applyChange(history.operation, true);
+        discardFromJournal(history.operation);
+        if (histories.isEmpty()) cancelCommitTimeout();
+        return true;
+    }
+
+    /**
+     * Commits all pending operations, the oldest first
+     */
+    public void commitAll() {
+        cancelCommitTimeout();
+        while (!histories.isEmpty()) {
+            commitOldest();
+        }
+    }
+
+    /**
+     * Returns the number of operations which can be undone
+     */
+    public int getUndoableOperationCount() {
+        return histories.size();
+    }
+
+    /**
+     * Removes the items at the given sorted distinct positions
+     */
+    public void remove(final int[] sortedPositions) {
+        if (sortedPositions.length == 0) return;
+        if (deferIfPending(new Runnable() {
+            @Override
+            public void run() {
+                remove(sortedPositions);
+            }
+        })) return;
+
+        List<M> dataSet = getDataSet();
+        RemoveOperation<M> operation = new RemoveOperation<>(dataSet, sortedPositions, undoListener);
+        if (idProvider != null) operation.withStableIds(dataSet, idProvider, positionLookup);
+        perform(operation);
+    }
+
+    /**
+     * Inserts the models at the given position
+     */
+    public void insert(final int position, final List<M> models) {
+        if (models.isEmpty()) return;
+        if (deferIfPending(new Runnable() {
+            @Override
+            public void run() {
+                insert(position, models);
+            }
+        })) return;
+        InsertOperation<M> operation = new InsertOperation<>(position, models, commitListener);
+        if (idProvider != null) operation.withStableIds(idProvider, positionLookup);
+        perform(operation);
+    }
+
+    /**
+     * Moves {@code itemCount} items starting at {@code fromPosition} so that the first one ends up at {@code toPosition}
+     */
+    public void move(final int fromPosition, final int toPosition, final int itemCount) {
+        if (fromPosition == toPosition || itemCount == 0) return;
+        if (deferIfPending(new Runnable() {
+            @Override
+            public void run() {
+                move(fromPosition, toPosition, itemCount);
+            }
+        })) return;
+        perform(new MoveOperation<M>(fromPosition, toPosition, itemCount, commitListener));
+    }
+
+    /**
+     * Replaces the item at the given position
+     */
+    public void update(int position, M model) {
+        update(new int[]{position}, Collections.singletonList(model));
+    }
+
+    /**
+     * Replaces the items at the given positions with the models at the same index
+     */
+    public void update(final int[] positions, final List<M> models) {
+        if (positions.length != models.size()) {
+            throw new IllegalArgumentException("positions and models must have the same size");
+        }
+        if (positions.length == 0) return;
+        if (deferIfPending(new Runnable() {
+            @Override
+            public void run() {
+                update(positions, models);
+            }
+        })) return;
+
+        // Sort the positions and their models together
+        final int[] unsortedPositions = positions;
+        Integer[] order = new Integer[positions.length];
+        for (int i = 0; i < order.length; i++) order[i] = i;
+        Arrays.sort(order, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer lhs, Integer rhs) {
+                return Integer.valueOf(unsortedPositions[lhs]).compareTo(unsortedPositions[rhs]);
+            }
+        });
+        int[] sortedPositions = new int[positions.length];
+        List<M> sortedModels = new ArrayList<>(positions.length);
+        for (int i = 0; i < order.length; i++) {
+            sortedPositions[i] = positions[order[i]];
+            if (i > 0 && sortedPositions[i] == sortedPositions[i - 1]) {
+                throw new IllegalArgumentException("positions must be distinct");
+            }
+            sortedModels.add(models.get(order[i]));
+        }
+
+        UpdateOperation<M> operation = new UpdateOperation<>(getDataSet(), sortedPositions,
+                sortedModels, commitListener);
+        if (idProvider != null) operation.withStableIds(idProvider, positionLookup);
+        perform(operation);
+    }
+
+    /**
+     * Applies the operation and adds it to the undo stack
+     */
+    public void perform(final UndoOperation<M> operation) {
+        if (deferIfPending(new Runnable() {
+            @Override
+            public void run() {
+                perform(operation);
+            }
+        })) return;
+        perform(operation, true);
+    }
+
+    private void perform(UndoOperation<M> operation, boolean apply) {
+        burst = null;
+        if (journal != null && operation instanceof RemoveOperation) {
+            ((RemoveOperation<M>) operation).writeToJournal(journal);
+        }
+
+        History<M> history = new History<>(operation);
+        List<M> retainedModels = operation.getRetainedModels();
+        history.itemCount = retainedModels.size();
+        if (itemSizeEstimator != null) {
+            for (int i = 0, size = retainedModels.size(); i < size; i++) {
+                history.byteCount += itemSizeEstimator.estimateSize(retainedModels.get(i));
+            }
+        }
+
+        histories.addLast(history);
+        pendingItemCount += history.itemCount;
+        pendingByteCount += history.byteCount;
+
+        if (apply) applyChange(operation, false);
+
+        // Commit the oldest operations in one go until we're in budget again
+        while (histories.size() > 1 && isOverBudget()) {
+            commitOldest();
+        }
+
+        if (presenter != null) presenter.show(this);
+        scheduleCommitTimeout();
+    }
+
+    /**
+     * Hands all commits which are waiting for their batch window to the commit executor
+     */
+    public void flushCommits() {
+        commitPipeline.flush();
+    }
+
+    /**
+     * Flushes the commits and blocks until the commit executor ran all of them, useful when the app goes
+     * to the background. Must not be called on the thread the commit executor runs on.
+     * Pending operations which can still be undone are not committed, use {@link #commitAll()} for that.
+     *
+     * @return false if the timeout elapsed before all commits ran
+     */
+    public boolean awaitCommits(long timeout, TimeUnit unit) throws InterruptedException {
+        return commitPipeline.await(timeout, unit);
+    }
+
+    /**
+     * Removes the item and merges the removal into the history of the current burst,
+     * so a burst of swipes can be undone and gets committed as one
+     */
+    public void removeInBurst(final int position) {
+        if (deferIfPending(new Runnable() {
+            @Override
+            public void run() {
+                removeInBurst(position);
+            }
+        })) return;
+
+        List<M> dataSet = getDataSet();
+        RemoveOperation<M> removal = new RemoveOperation<>(dataSet, new int[]{position}, undoListener);
+        if (idProvider != null) removal.withStableIds(dataSet, idProvider, positionLookup);
+
+        if (burst == null || histories.peekLast() != burst) {
+            CompositeOperation<M> operation = new CompositeOperation<>();
+            if (journal != null) removal.writeToJournal(journal);
+            applyChange(removal, false);
+            operation.add(removal);
+            perform(operation, false);
+            burst = histories.peekLast();
+            return;
+        }
+
+        // The position is relative to the data set after the previous swipes, which is where the removal applies
+        if (journal != null) removal.writeToJournal(journal);
+        applyChange(removal, false);
+        ((CompositeOperation<M>) burst.operation).add(removal);
+
+        M model = removal.getRetainedModels().get(0);
+        long byteCount = itemSizeEstimator != null ? itemSizeEstimator.estimateSize(model) : 0;
+        burst.itemCount++;
+        burst.byteCount += byteCount;
+        pendingItemCount++;
+        pendingByteCount += byteCount;
+
+        // Commit the older operations first and the burst itself once it alone exceeds the budget
+        while (!histories.isEmpty() && isOverBudget()) {
+            commitOldest();
+        }
+
+        if (histories.isEmpty()) {
+            cancelCommitTimeout();
+            if (presenter != null) presenter.dismiss();
+            return;
+        }
+
+        if (presenter != null) presenter.show(this);
+        scheduleCommitTimeout();
+    }
+
+    /**
+     * Starts a new history with the next swipe
+     */
+    public void closeBurst() {
+        burst = null;
+    }
+
+    /**
+     * Moves the item right away, used for the steps of a drag which is recorded once it ends
+     * @return false if the item can't be moved right now
+     */
+    public boolean moveDirectly(int fromPosition, int toPosition) {
+        if (isApplyingInBackground() || (!deferredCalls.isEmpty() && !runningDeferredCalls)) return false;
+        MoveOperation.move(getDataSet(), listUpdateListener, fromPosition, toPosition, 1);
+        return true;
+    }
+
+    /**
+     * Adds the move of a finished drag to the undo stack, the data set already contains it
+     */
+    public void recordMove(final int fromPosition, final int toPosition) {
+        if (fromPosition == toPosition) return;
+        if (deferIfPending(new Runnable() {
+            @Override
+            public void run() {
+                recordMove(fromPosition, toPosition);
+            }
+        })) return;
+        perform(new MoveOperation<M>(fromPosition, toPosition, 1, commitListener), false);
+    }
+
+    /**
+     * Returns whether an operation is being applied in the background, the data set of the adapter
+     * is swapped once it's done. Operations called meanwhile are queued and resolve their positions
+     * against the data set once the previous ones are applied
+     */
+    public boolean isApplyingInBackground() {
+        return backgroundApplier != null && backgroundApplier.isBusy();
+    }
+
+    private void applyChange(UndoOperation<M> operation, boolean revert) {
+        if (backgroundApplier != null && (backgroundApplier.isBusy()
+                || operation.getAffectedItemCount() >= backgroundThreshold)) {
+            // Queue behind the running job so the changes keep their order
+            backgroundApplier.submit(operation, revert);
+        } else {
+            Metrics.Tracer tracer = Metrics.beginSection(revert ? "Undo.revert" : "Undo.apply");
+            try {
+                if (revert) {
+                    operation.revert(getDataSet(), listUpdateListener);
+                } else {
+                    operation.apply(getDataSet(), listUpdateListener);
+                }
+            } finally {
+                Metrics.endSection(tracer);
+            }
+        }
+    }
+
+    /**
+     * Returns the data set the operations work on, structural changes go through the range splice methods
+     * of the adapter if it has them
+     */
+    private List<M> getDataSet() {
+        return splicingList != null ? splicingList : adapter.getDataSet();
+    }
+
+    /**
+     * Queues the call while operations are applied in the background or earlier calls are still waiting
+     * @return whether the call got queued
+     */
+    private boolean deferIfPending(Runnable call) {
+        if (isApplyingInBackground() || (!deferredCalls.isEmpty() && !runningDeferredCalls)) {
+            deferredCalls.addLast(call);
+            return true;
+        }
+        return false;
+    }
+
+    private final Runnable runDeferredCallsRunnable = new Runnable() {
+        @Override
+        public void run() {
+            runningDeferredCalls = true;
+            try {
+                // Stops as soon as one of the calls starts another background job
+                while (!deferredCalls.isEmpty() && !isApplyingInBackground()) {
+                    deferredCalls.pollFirst().run();
+                }
+            } finally {
+                runningDeferredCalls = false;
+            }
+        }
+    };
+
+    private boolean isOverBudget() {
+        return histories.size() > maxUndoOperations
+                || pendingItemCount > maxUndoItems
+                || pendingByteCount > maxUndoBytes;
+    }
+
+    private void onHistoryRemoved(History<M> history) {
+        pendingItemCount -= history.itemCount;
+        pendingByteCount -= history.byteCount;
+    }
+
+    private void commitOldest() {
+        History<M> history = histories.pollFirst();
+        if (history == burst) burst = null;
+        onHistoryRemoved(history);
+        commitPipeline.enqueue(history.operation);
+    }
+
+    private void discardFromJournal(UndoOperation<M> operation) {
+        if (operation instanceof CompositeOperation) {
+            for (UndoOperation<M> part : ((CompositeOperation<M>) operation).getParts()) {
+                discardFromJournal(part);
+            }
+        } else if (operation instanceof RemoveOperation) {
+            ((RemoveOperation<M>) operation).discardFromJournal();
+        }
+    }
+
+    private void scheduleCommitTimeout() {
+        if (commitTimeoutMillis > 0) {
+            // Every new operation restarts the timeout
+            timer.cancel(commitTimeoutRunnable);
+            timer.postDelayed(commitTimeoutRunnable, commitTimeoutMillis);
+        }
+    }
+
+    private void cancelCommitTimeout() {
+        if (commitTimeoutMillis > 0) {
+            timer.cancel(commitTimeoutRunnable);
+        }
+    }
+
+    private final Runnable commitTimeoutRunnable = new Runnable() {
+        @Override
+        public void run() {
+            commitAll();
+            if (presenter != null) presenter.dismiss();
+        }
+    };
+
+    public interface UndoAdapter<M> {
+        List<M> getDataSet();
+    }
+
+    public interface UndoListener<M> {
+        void commitRemove(Set<Integer> positions, List<M> removed);
+    }
+
+    /**
+     * Receives the commits of the insert, move and update operations
+     */
+    public interface CommitListener<M> {
+        void commitInsert(int positionStart, List<M> inserted);
+
+        void commitMove(int fromPosition, int toPosition, int itemCount);
+
+        void commitUpdate(Set<Integer> positions, List<M> previous, List<M> updated);
+    }
+
+    /**
+     * Returns a stable id of the model, see {@link Builder#withStableIds(ItemIdProvider)}
+     */
+    public interface ItemIdProvider<M> {
+        long getItemId(M model);
+    }
+
+    /**
+     * Can be implemented by the adapter if its data set can splice ranges faster than {@link List#add(int, Object)}
+     * and {@link List#remove(int)}, e.g. a chunked list. Removals and inserts use it instead of the data set,
+     * which is still used to read and replace items.
+     */
+    public interface SpliceAdapter<M> extends UndoEngine.UndoAdapter<M> {
+        void removeRange(int positionStart, int itemCount);
+
+        void insertRange(int positionStart, List<M> models);
+
+        /**
+         * Returns a copy of the range
+         */
+        List<M> snapshotRange(int positionStart, int itemCount);
+    }
+
+    /**
+     * Implemented by the adapter to use {@link Builder#withBackgroundUpdates(Executor, int)}
+     */
+    public interface DataSetSwapper<M> extends UndoEngine.UndoAdapter<M> {
+        /**
+         * Returns the items of the data set for reading on another thread, they must not change afterwards.
+         * Either a copy or the data set itself if the adapter copies it before its next modification
+         */
+        List<M> shareDataSet();
+
+        /**
+         * Returns a counter which changes with every modification of the data set, including changes
+         * made in place, e.g. by appending a page
+         */
+        int getModificationCount();
+
+        /**
+         * Replaces the data set without notifying, the changed ranges are dispatched right after
+         */
+        void swapDataSet(List<M> dataSet);
+    }
+
+    /**
+     * Has to be implemented by the adapter in stable id mode, it's asked for the items which aren't
+     * at their recorded position anymore and should find them faster than a scan of the data set
+     */
+    public interface PositionLookup {
+        /**
+         * Returns the position of the item with the id or -1
+         */
+        int findPositionForId(long id);
+    }
+
+    public interface ItemSizeEstimator<M> {
+        /**
+         * Returns the approximate number of bytes the model keeps alive while its removal can be undone
+         */
+        long estimateSize(M model);
+    }
+
+    private static class History<M> {
+
+        private final UndoOperation<M> operation;
+        private int itemCount;
+        private long byteCount;
+
+        private History(UndoOperation<M> operation) {
+            this.operation = operation;
+        }
+    }
+
+    private static final Executor DIRECT_EXECUTOR = new Executor() {
+        @Override
+        public void execute(Runnable command) {
+            command.run();
+        }
+    };
+
+    public static class Builder<M> {
+
+        private UndoEngine.UndoAdapter<M> adapter;
+        private ListUpdateListener listUpdateListener;
+
+        private UndoEngine.UndoListener<M> undoListener;
+        private UndoEngine.CommitListener<M> commitListener;
+
+        private UndoEngine.ItemIdProvider<M> idProvider;
+
+        private UndoPresenter presenter;
+        private UndoTimer timer;
+        private long commitTimeoutMillis;
+
+        private int maxUndoOperations = 1;
+        private int maxUndoItems = Integer.MAX_VALUE;
+        private long maxUndoBytes = Long.MAX_VALUE;
+        private UndoEngine.ItemSizeEstimator<M> itemSizeEstimator;
+
+        private Executor commitExecutor = DIRECT_EXECUTOR;
+        private long commitBatchWindowMillis;
+
+        private UndoJournal<M> journal;
+        private int journalRecoveryPolicy;
+
+        private Executor backgroundExecutor;
+        private int backgroundThreshold;
+
+        /**
+         * Sets the data set the operations are applied to and the listener which receives the changed ranges
+         */
+        public Builder<M> withAdapter(UndoEngine.UndoAdapter<M> adapter, ListUpdateListener listUpdateListener) {
+            this.adapter = adapter;
+            this.listUpdateListener = listUpdateListener;
+            return this;
+        }
+
+        public Builder<M> withUndoListener(UndoEngine.UndoListener<M> undoListener) {
+            this.undoListener = undoListener;
+            return this;
+        }
+
+        public Builder<M> withCommitListener(UndoEngine.CommitListener<M> commitListener) {
+            this.commitListener = commitListener;
+            return this;
+        }
+
+        /**
+         * Records the ids of the affected items, so undo restores the right items at the right place
+         * even if the data set changed while the operation was pending, e.g. because a page was appended.
+         * Removed items get reinserted after the item which was in front of them,
+         * moves are still reverted by their positions. The adapter has to implement {@link PositionLookup}
+         */
+        public Builder<M> withStableIds(UndoEngine.ItemIdProvider<M> idProvider) {
+            this.idProvider = idProvider;
+            return this;
+        }
+
+        public Builder<M> withPresenter(UndoPresenter presenter) {
+            this.presenter = presenter;
+            return this;
+        }
+
+        /**
+         * Sets the timer of the commit timeout and the commit batch window
+         */
+        public Builder<M> withTimer(UndoTimer timer) {
+            this.timer = timer;
+            return this;
+        }
+
+        /**
+         * Commits all pending operations once no operation was performed for the given time,
+         * without it they only get committed once they exceed the budget or {@link UndoEngine#commitAll()} is called
+         */
+        public Builder<M> withCommitTimeout(long commitTimeoutMillis) {
+            this.commitTimeoutMillis = commitTimeoutMillis;
+            return this;
+        }
+
+        /**
+         * Sets how many operations can be undone, defaults to 1 which commits the previous operation
+         * as soon as a new one is added
+         */
+        public Builder<M> withMaxUndoOperations(int maxUndoOperations) {
+            this.maxUndoOperations = maxUndoOperations;
+            return this;
+        }
+
+        /**
+         * Sets how many removed items can be kept for undo across all operations
+         */
+        public Builder<M> withMaxUndoItems(int maxUndoItems) {
+            this.maxUndoItems = maxUndoItems;
+            return this;
+        }
+
+        /**
+         * Sets how many bytes of removed items can be kept for undo across all operations
+         */
+        public Builder<M> withMaxUndoBytes(long maxUndoBytes, UndoEngine.ItemSizeEstimator<M> itemSizeEstimator) {
+            this.maxUndoBytes = maxUndoBytes;
+            this.itemSizeEstimator = itemSizeEstimator;
+            return this;
+        }
+
+        /**
+         * Sets the executor the listeners get committed on, by default commits run directly on the calling thread
+         */
+        public Builder<M> withCommitExecutor(Executor commitExecutor) {
+            this.commitExecutor = commitExecutor;
+            return this;
+        }
+
+        /**
+         * Commits which happen within the window are passed to the listeners as one batch,
+         * consecutive removals are merged into a single {@link UndoListener#commitRemove(Set, List)} call
+         * with the positions of the data set before the first of them
+         */
+        public Builder<M> withCommitBatchWindow(long commitBatchWindowMillis) {
+            this.commitBatchWindowMillis = commitBatchWindowMillis;
+            return this;
+        }
+
+        /**
+         * Records pending removals in the journal so they survive a process death, the removals which were
+         * pending when the process died will be committed or rolled back on the sync executor of the journal
+         * once the engine gets built. Recovered removals are passed to the undo listener on the commit executor,
+         * or on the sync executor if none is set
+         *
+         * @param recoveryPolicy {@link UndoJournal#RECOVERY_COMMIT} or {@link UndoJournal#RECOVERY_ROLLBACK}
+         */
+        public Builder<M> withJournal(UndoJournal<M> journal, int recoveryPolicy) {
+            this.journal = journal;
+            this.journalRecoveryPolicy = recoveryPolicy;
+            return this;
+        }
+
+        /**
+         * Applies and undoes operations with at least {@code threshold} items on a copy of the data set on the
+         * executor, the timer hands the result back to be swapped in and dispatched.
+         * The adapter has to implement {@link DataSetSwapper}, a result is computed again if the data set
+         * was modified while it was computed. Operations performed meanwhile are applied after the running one
+         */
+        public Builder<M> withBackgroundUpdates(Executor backgroundExecutor, int backgroundThreshold) {
+            this.backgroundExecutor = backgroundExecutor;
+            this.backgroundThreshold = backgroundThreshold;
+            return this;
+        }
+
+        public UndoEngine<M> build() {
+            if (adapter == null || listUpdateListener == null) {
+                throw new IllegalStateException("adapter has to be set");
+            }
+            if (maxUndoOperations < 1) {
+                throw new IllegalStateException("maxUndoOperations has to be at least 1");
+            }
+            if (timer == null && (commitTimeoutMillis > 0 || commitBatchWindowMillis > 0)) {
+                throw new IllegalStateException("timer has to be set to use a commit timeout or batch window");
+            }
+            if (idProvider != null && !(adapter instanceof UndoEngine.PositionLookup)) {
+                throw new IllegalStateException("adapter has to implement PositionLookup to use stable ids");
+            }
+
+            if (backgroundExecutor != null) {
+                if (!(adapter instanceof UndoEngine.DataSetSwapper)) {
+                    throw new IllegalStateException("adapter has to implement DataSetSwapper to use background updates");
+                }
+                if (timer == null) {
+                    throw new IllegalStateException("timer has to be set to use background updates");
+                }
+            }
+
+            return new UndoEngine<>(this);
+        }
+    }
+}
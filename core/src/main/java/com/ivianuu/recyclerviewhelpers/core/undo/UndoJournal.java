@@ -0,0 +1,381 @@
+package com.ivianuu.recyclerviewhelpers.core.undo;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Append only journal of the pending removals of an {@link UndoEngine}, so they survive a process death
+ * while they can still be undone.
+ *
+ * The records are written in order on the sync executor, so the caller never waits for the file,
+ * and the file is synced to the disk at most every {@code syncIntervalMillis}, records written after a sync
+ * get synced once the interval elapsed. The models are serialized by the {@link Codec} on the sync executor as well.
+ * Once no removal is pending anymore the file is truncated.
+ * On the next start {@link UndoEngine.Builder#withJournal(UndoJournal, int)} replays all removals
+ * which were neither committed nor undone on the sync executor, records appended meanwhile are written after it.
+ * A removal can be committed twice if the process dies after the listener was called but before the commit
+ * was recorded, so the listener should be idempotent.
+ */
+public final class UndoJournal<M> {
+
+    private static final Logger LOGGER = Logger.getLogger(UndoJournal.class.getName());
+
+    /**
+     * Pending removals will be committed on replay
+     */
+    public static final int RECOVERY_COMMIT = 0;
+
+    /**
+     * Pending removals will be dropped on replay, the items are still in the data source
+     */
+    public static final int RECOVERY_ROLLBACK = 1;
+
+    private static final byte RECORD_PENDING = 1;
+    private static final byte RECORD_COMMITTED = 2;
+    private static final byte RECORD_REVERTED = 3;
+
+    private final File file;
+    private final Codec<M> codec;
+    private final long syncIntervalMillis;
+    private final ScheduledExecutorService syncExecutor;
+
+    private static ScheduledExecutorService defaultSyncExecutor;
+
+    private FileOutputStream fileOutputStream;
+    private DataOutputStream out;
+    private long lastSyncMillis;
+    private boolean syncScheduled;
+    private int pendingCount;
+
+    // The replay truncates the file before any new record is written, so the ids only need to be unique
+    // within this process
+    private final AtomicLong nextId = new AtomicLong();
+
+    // Writes run one after another even if the sync executor has multiple threads
+    private final ArrayDeque<Runnable> writes = new ArrayDeque<>();
+    private boolean writing;
+
+    public UndoJournal(File file, Codec<M> codec) {
+        this(file, codec, 1000);
+    }
+
+    public UndoJournal(File file, Codec<M> codec, long syncIntervalMillis) {
+        this(file, codec, syncIntervalMillis, getDefaultSyncExecutor());
+    }
+
+    /**
+     * @param syncExecutor runs the syncs and the replay, shared by all journals which don't set one
+     */
+    public UndoJournal(File file, Codec<M> codec, long syncIntervalMillis, ScheduledExecutorService syncExecutor) {
+        this.file = file;
+        this.codec = codec;
+        this.syncIntervalMillis = syncIntervalMillis;
+        this.syncExecutor = syncExecutor;
+    }
+
+    /**
+     * Replays the journal on the sync executor and passes the recovered removals to the listener
+     * on the commit executor. Records appended meanwhile are written once the journal was read
+     */
+    void replayInBackground(final int recoveryPolicy, final UndoEngine.UndoListener<M> undoListener,
+                            final Executor commitExecutor) {
+        enqueue(new Runnable() {
+            @Override
+            public void run() {
+                final List<PendingRemoval<M>> pendingRemovals = replay();
+                if (recoveryPolicy != RECOVERY_COMMIT || undoListener == null || pendingRemovals.isEmpty()) {
+                    return;
+                }
+                commitExecutor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        for (PendingRemoval<M> pendingRemoval : pendingRemovals) {
+                            undoListener.commitRemove(new PositionSet(pendingRemoval.positions),
+                                    pendingRemoval.models);
+                        }
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Reads the journal, returns all removals which were neither committed nor undone and truncates it afterwards
+     */
+    synchronized List<PendingRemoval<M>> replay() {
+        Map<Long, PendingRemoval<M>> pendingRemovals = new LinkedHashMap<>();
+
+        if (file.exists()) {
+            DataInputStream in = null;
+            try {
+                in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+                while (true) {
+                    byte type = in.readByte();
+                    long id = in.readLong();
+                    if (type == RECORD_PENDING) {
+                        int count = in.readInt();
+                        int[] positions = new int[count];
+                        List<M> models = new ArrayList<>(count);
+                        for (int i = 0; i < count; i++) {
+                            positions[i] = in.readInt();
+                            models.add(codec.read(in));
+                        }
+                        pendingRemovals.put(id, new PendingRemoval<>(positions, models));
+                    } else {
+                        pendingRemovals.remove(id);
+                    }
+                }
+            } catch (EOFException e) {
+                // End of the journal or a record which was cut off by the process death
+            } catch (IOException e) {
+                LOGGER.log(Level.WARNING, "couldn't read the journal", e);
+            } finally {
+                closeQuietly(in);
+            }
+        }
+
+        truncate();
+        return new ArrayList<>(pendingRemovals.values());
+    }
+
+    /**
+     * Queues a pending removal and returns its id
+     */
+    long appendPending(int[] positions, List<M> models) {
+        final long id = nextId.getAndIncrement();
+        final int[] positionsCopy = positions.clone();
+        final List<M> modelsCopy = new ArrayList<>(models);
+        enqueue(new Runnable() {
+            @Override
+            public void run() {
+                writePending(id, positionsCopy, modelsCopy);
+            }
+        });
+        return id;
+    }
+
+    void appendCommitted(long[] ids) {
+        append(RECORD_COMMITTED, ids);
+    }
+
+    void appendReverted(long[] ids) {
+        append(RECORD_REVERTED, ids);
+    }
+
+    /**
+     * Syncs all written records to the disk and blocks until it's done, records which are appended meanwhile
+     * don't wait for the sync
+     */
+    public void sync() {
+        FileOutputStream syncedStream;
+        synchronized (this) {
+            syncScheduled = false;
+            if (fileOutputStream == null) {
+                return;
+            }
+            try {
+                out.flush();
+            } catch (IOException e) {
+                LOGGER.log(Level.WARNING, "couldn't sync the journal", e);
+                return;
+            }
+            syncedStream = fileOutputStream;
+            lastSyncMillis = System.currentTimeMillis();
+        }
+
+        try {
+            syncedStream.getFD().sync();
+        } catch (IOException e) {
+            synchronized (this) {
+                // The stream gets closed when the journal is truncated, there's nothing left to sync then
+                if (syncedStream == fileOutputStream) {
+                    LOGGER.log(Level.WARNING, "couldn't sync the journal", e);
+                }
+            }
+        }
+    }
+
+    private void append(final byte type, long[] ids) {
+        final long[] idsCopy = ids.clone();
+        enqueue(new Runnable() {
+            @Override
+            public void run() {
+                write(type, idsCopy);
+            }
+        });
+    }
+
+    private synchronized void writePending(long id, int[] positions, List<M> models) {
+        try {
+            DataOutputStream out = getOutputStream();
+            out.writeByte(RECORD_PENDING);
+            out.writeLong(id);
+            out.writeInt(positions.length);
+            for (int i = 0; i < positions.length; i++) {
+                out.writeInt(positions[i]);
+                codec.write(out, models.get(i));
+            }
+            flush();
+            pendingCount++;
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "couldn't write to the journal", e);
+        }
+    }
+
+    private synchronized void write(byte type, long[] ids) {
+        try {
+            DataOutputStream out = getOutputStream();
+            for (long id : ids) {
+                out.writeByte(type);
+                out.writeLong(id);
+            }
+            flush();
+            pendingCount -= ids.length;
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "couldn't write to the journal", e);
+        }
+
+        if (pendingCount <= 0) {
+            // Nothing is pending anymore so the journal can start over
+            truncate();
+        }
+    }
+
+    private void enqueue(Runnable write) {
+        synchronized (writes) {
+            writes.add(write);
+            if (writing) {
+                return;
+            }
+            writing = true;
+        }
+        syncExecutor.execute(writeRunnable);
+    }
+
+    private final Runnable writeRunnable = new Runnable() {
+        @Override
+        public void run() {
+            while (true) {
+                Runnable write;
+                synchronized (writes) {
+                    write = writes.poll();
+                    if (write == null) {
+                        writing = false;
+                        return;
+                    }
+                }
+                try {
+                    write.run();
+                } catch (RuntimeException e) {
+                    // Keep writing the following records, e.g. if the codec failed for one model
+                    LOGGER.log(Level.WARNING, "couldn't write to the journal", e);
+                }
+            }
+        }
+    };
+
+    private DataOutputStream getOutputStream() throws IOException {
+        if (out == null) {
+            fileOutputStream = new FileOutputStream(file, true);
+            out = new DataOutputStream(new BufferedOutputStream(fileOutputStream));
+        }
+        return out;
+    }
+
+    /**
+     * Hands the record to the file system which keeps it across a process death
+     * and schedules the expensive sync to the disk on the sync executor
+     */
+    private void flush() throws IOException {
+        out.flush();
+        if (!syncScheduled) {
+            syncScheduled = true;
+            long delayMillis = Math.max(0, lastSyncMillis + syncIntervalMillis - System.currentTimeMillis());
+            syncExecutor.schedule(syncRunnable, delayMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private final Runnable syncRunnable = new Runnable() {
+        @Override
+        public void run() {
+            sync();
+        }
+    };
+
+    private void truncate() {
+        closeQuietly(out);
+        out = null;
+        fileOutputStream = null;
+        pendingCount = 0;
+        try {
+            new FileOutputStream(file, false).close();
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "couldn't truncate the journal", e);
+        }
+    }
+
+    private static synchronized ScheduledExecutorService getDefaultSyncExecutor() {
+        if (defaultSyncExecutor == null) {
+            defaultSyncExecutor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, "UndoJournal");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        return defaultSyncExecutor;
+    }
+
+    private static void closeQuietly(java.io.Closeable closeable) {
+        if (closeable != null) {
+            try {
+                closeable.close();
+            } catch (IOException e) {
+                // ignore
+            }
+        }
+    }
+
+    /**
+     * Serializes the models of the journal
+     */
+    public interface Codec<M> {
+        void write(DataOutput out, M model) throws IOException;
+
+        M read(DataInput in) throws IOException;
+    }
+
+    static class PendingRemoval<M> {
+        private final int[] positions;
+        private final List<M> models;
+
+        private PendingRemoval(int[] positions, List<M> models) {
+            this.positions = positions;
+            this.models = models;
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.ivianuu.recyclerviewhelpers.core.undo;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A change of the data set which can be undone until it gets committed.
+ *
+ * Operations are applied and reverted in the order they were added, so an operation can rely on the data set
+ * being in the same state as when it was created.
+ */
+public abstract class UndoOperation<M> {
+
+    static final long[] NO_IDS = new long[0];
+
+    /**
+     * Applies the change to the data set and notifies the listener about the changed ranges
+     */
+    protected abstract void apply(List<M> dataSet, ListUpdateListener listener);
+
+    /**
+     * Reverts the change made by {@link #apply(List, ListUpdateListener)}
+     */
+    protected abstract void revert(List<M> dataSet, ListUpdateListener listener);
+
+    /**
+     * Reverts the change and finds moved items through the lookup, so the lookup can be replaced
+     * when the operation is reverted in the background
+     */
+    void revert(List<M> dataSet, ListUpdateListener listener, UndoEngine.PositionLookup positionLookup) {
+        revert(dataSet, listener);
+    }
+
+    /**
+     * Returns the ids which might be passed to the lookup by {@link #revert(List, ListUpdateListener)}
+     */
+    long[] getLookupIds() {
+        return NO_IDS;
+    }
+
+    /**
+     * Called once the operation can't be undone anymore
+     */
+    protected void commit() {
+    }
+
+    /**
+     * Returns the models which are only kept alive to revert this operation, they count against the undo budget
+     */
+    protected List<M> getRetainedModels() {
+        return Collections.emptyList();
+    }
+
+    /**
+     * Returns the number of items the operation changes, large operations can be applied in the background
+     */
+    protected int getAffectedItemCount() {
+        return getRetainedModels().size();
+    }
+}
@@ -0,0 +1,19 @@
+package com.ivianuu.recyclerviewhelpers.core.undo;
+
+/**
+ * Offers the pending operations of an {@link UndoEngine} to the user.
+ * The presenter calls {@link UndoEngine#undo()} when the user wants to undo, the operations get committed
+ * by the commit timeout of the engine which dismisses the presenter afterwards.
+ */
+public interface UndoPresenter {
+
+    /**
+     * Called after an operation was performed, the presenter might already be shown
+     */
+    void show(UndoEngine<?> engine);
+
+    /**
+     * Called once there's nothing left to undo
+     */
+    void dismiss();
+}
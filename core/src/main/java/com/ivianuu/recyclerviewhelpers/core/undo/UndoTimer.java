@@ -0,0 +1,10 @@
+package com.ivianuu.recyclerviewhelpers.core.undo;
+
+/**
+ * Schedules the delayed work of an {@link UndoEngine}, the {@code UndoHelper} uses the main thread looper
+ */
+public interface UndoTimer {
+    void postDelayed(Runnable runnable, long delayMillis);
+
+    void cancel(Runnable runnable);
+}
@@ -0,0 +1,107 @@
+package com.ivianuu.recyclerviewhelpers.core.undo;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Replaces the items at sorted distinct positions
+ */
+class UpdateOperation<M> extends UndoOperation<M> {
+
+    private final int[] positions;
+    private final List<M> previousModels;
+    private final List<M> models;
+    private final UndoEngine.CommitListener<M> commitListener;
+
+    // Stable id mode
+    private UndoEngine.ItemIdProvider<M> idProvider;
+    private UndoEngine.PositionLookup positionLookup;
+
+    UpdateOperation(List<M> dataSet, int[] positions, List<M> models, UndoEngine.CommitListener<M> commitListener) {
+        this.positions = positions;
+        this.models = new ArrayList<>(models);
+        this.commitListener = commitListener;
+        previousModels = new ArrayList<>(positions.length);
+        for (int position : positions) {
+            previousModels.add(dataSet.get(position));
+        }
+    }
+
+    /**
+     * Restores the previous items by the ids of the updated ones on revert, wherever they are by then
+     */
+    UpdateOperation<M> withStableIds(UndoEngine.ItemIdProvider<M> idProvider,
+                                     UndoEngine.PositionLookup positionLookup) {
+        this.idProvider = idProvider;
+        this.positionLookup = positionLookup;
+        return this;
+    }
+
+    @Override
+    protected void apply(List<M> dataSet, ListUpdateListener listener) {
+        set(dataSet, listener, models);
+    }
+
+    @Override
+    protected void revert(List<M> dataSet, ListUpdateListener listener) {
+        revert(dataSet, listener, positionLookup);
+    }
+
+    @Override
+    void revert(List<M> dataSet, ListUpdateListener listener, UndoEngine.PositionLookup positionLookup) {
+        if (idProvider != null) {
+            revertById(dataSet, listener, positionLookup);
+            return;
+        }
+
+        set(dataSet, listener, previousModels);
+    }
+
+    @Override
+    long[] getLookupIds() {
+        if (idProvider == null) {
+            return NO_IDS;
+        }
+        long[] ids = new long[models.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = idProvider.getItemId(models.get(i));
+        }
+        return ids;
+    }
+
+    private void revertById(List<M> dataSet, ListUpdateListener listener,
+                            UndoEngine.PositionLookup positionLookup) {
+        StableIdIndex<M> index = new StableIdIndex<>(dataSet, idProvider, positionLookup);
+        // Replacing items doesn't shift the others, so each position can be restored right away
+        for (int i = 0; i < positions.length; i++) {
+            int position = index.findPosition(idProvider.getItemId(models.get(i)), positions[i]);
+            if (position != -1) {
+                dataSet.set(position, previousModels.get(i));
+                listener.onChanged(position, 1);
+            }
+        }
+    }
+
+    @Override
+    protected void commit() {
+        if (commitListener != null) {
+            commitListener.commitUpdate(new PositionSet(positions), previousModels, models);
+        }
+    }
+
+    @Override
+    protected List<M> getRetainedModels() {
+        return previousModels;
+    }
+
+    private void set(List<M> dataSet, ListUpdateListener listener, List<M> models) {
+        int runStart = 0;
+        for (int i = 0, size = positions.length; i < size; i++) {
+            dataSet.set(positions[i], models.get(i));
+            if (i == size - 1 || positions[i + 1] != positions[i] + 1) {
+                listener.onChanged(positions[runStart], i - runStart + 1);
+                runStart = i + 1;
+            }
+        }
+    }
+}
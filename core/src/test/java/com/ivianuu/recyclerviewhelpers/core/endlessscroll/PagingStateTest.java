@@ -0,0 +1,56 @@
+package com.ivianuu.recyclerviewhelpers.core.endlessscroll;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class PagingStateTest {
+
+    @Test
+    public void tokenEndsLoadWhichAddedNoItems() {
+        PagingState pagingState = new PagingState(5);
+        assertEquals(PagingState.FLAG_LOAD_MORE, pagingState.checkEndOffset(20, 19, false));
+        pagingState.startLoading();
+
+        // Every item of the page was a duplicate
+        assertTrue(pagingState.setContinuationToken("next", 20));
+        assertFalse(pagingState.isLoading());
+        assertEquals(PagingState.FLAG_LOAD_MORE, pagingState.checkEndOffset(20, 19, false));
+    }
+
+    @Test
+    public void nullTokenMarksAllItemsLoaded() {
+        PagingState pagingState = new PagingState(5);
+        pagingState.startLoading();
+
+        assertTrue(pagingState.setContinuationToken(null, 20));
+        assertTrue(pagingState.isAllItemsLoaded());
+        assertEquals(0, pagingState.checkEndOffset(20, 19, false));
+    }
+
+    @Test
+    public void keysetLoadIgnoresInsertedItems() {
+        PagingState pagingState = new PagingState(5, true);
+        assertEquals(PagingState.FLAG_LOAD_MORE, pagingState.checkEndOffset(20, 19, false));
+        pagingState.startLoading();
+
+        // A live insert doesn't end the load, the next page is only requested with the new token
+        assertEquals(PagingState.FLAG_LOADING, pagingState.checkEndOffset(21, 20, false));
+        assertTrue(pagingState.isLoading());
+
+        assertTrue(pagingState.setContinuationToken("next", 31));
+        assertEquals(PagingState.FLAG_LOAD_MORE, pagingState.checkEndOffset(31, 30, false));
+    }
+
+    @Test
+    public void noLoadWhilePageIsDispatched() {
+        PagingState pagingState = new PagingState(5, true);
+        pagingState.startLoading();
+        assertTrue(pagingState.setContinuationToken("next", 20));
+
+        assertEquals(0, pagingState.checkEndOffset(20, 19, true));
+        assertEquals(PagingState.FLAG_LOAD_MORE, pagingState.checkEndOffset(30, 29, false));
+    }
+}
@@ -0,0 +1,114 @@
+package com.ivianuu.recyclerviewhelpers.core.stickyheaders;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Makes sure the notify and scroll paths of the {@link HeaderIndex} don't allocate once its capacity is reached
+ */
+public class HeaderIndexAllocationTest {
+
+    private static final int ITEM_COUNT = 1000;
+    private static final int ROUNDS = 1000;
+
+    private final HeaderIndex index = new HeaderIndex();
+    private final boolean[] headers = new boolean[ITEM_COUNT * 2];
+    private final HeaderIndex.HeaderPredicate predicate = new HeaderIndex.HeaderPredicate() {
+        @Override
+        public boolean isHeader(int position) {
+            return headers[position];
+        }
+    };
+
+    private com.sun.management.ThreadMXBean threadMXBean;
+
+    @Before
+    public void setUp() {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+        threadMXBean = (com.sun.management.ThreadMXBean) bean;
+        assumeTrue(threadMXBean.isThreadAllocatedMemorySupported());
+        threadMXBean.setThreadAllocatedMemoryEnabled(true);
+
+        for (int i = 0; i < headers.length; i++) {
+            headers[i] = i % 10 == 0;
+        }
+        index.rebuild(ITEM_COUNT, predicate);
+
+        // Grow the index to its final capacity and let the jit settle
+        runNotifyPath();
+        runScrollPath();
+    }
+
+    @Test
+    public void notifyPathDoesNotAllocate() {
+        assertEquals(0, measureAllocatedBytes(new Runnable() {
+            @Override
+            public void run() {
+                runNotifyPath();
+            }
+        }));
+    }
+
+    @Test
+    public void scrollPathDoesNotAllocate() {
+        assertEquals(0, measureAllocatedBytes(new Runnable() {
+            @Override
+            public void run() {
+                runScrollPath();
+            }
+        }));
+    }
+
+    private void runNotifyPath() {
+        for (int i = 0; i < ROUNDS; i++) {
+            int position = (i * 31) % ITEM_COUNT;
+            index.onItemRangeInserted(position, 20, predicate);
+            index.onItemRangeMoved(position, (position + 37) % ITEM_COUNT, 1);
+            index.onItemRangeMoved((position + 37) % ITEM_COUNT, position, 1);
+            index.onItemRangeChanged(position, 5, predicate);
+            index.onItemRangeRemoved(position, 20);
+        }
+        index.rebuild(ITEM_COUNT, predicate);
+    }
+
+    private void runScrollPath() {
+        int sum = 0;
+        for (int i = 0; i < ROUNDS * 10; i++) {
+            int position = i % ITEM_COUNT;
+            int headerIndex = index.findHeaderIndexOrBefore(position);
+            if (headerIndex != -1) {
+                sum += index.get(headerIndex);
+            }
+            if (headerIndex + 1 < index.size()) {
+                sum += index.get(headerIndex + 1);
+            }
+            if (index.contains(position)) {
+                sum++;
+            }
+        }
+        // Keep the loop from being optimized away
+        if (sum == Integer.MIN_VALUE) {
+            throw new AssertionError();
+        }
+    }
+
+    /**
+     * Returns the bytes the runnable allocated on the current thread, corrected by the cost of measuring
+     */
+    private long measureAllocatedBytes(Runnable runnable) {
+        long threadId = Thread.currentThread().getId();
+        long calibrationStart = threadMXBean.getThreadAllocatedBytes(threadId);
+        long calibration = threadMXBean.getThreadAllocatedBytes(threadId) - calibrationStart;
+
+        long start = threadMXBean.getThreadAllocatedBytes(threadId);
+        runnable.run();
+        return threadMXBean.getThreadAllocatedBytes(threadId) - start - calibration;
+    }
+}
@@ -0,0 +1,132 @@
+package com.ivianuu.recyclerviewhelpers.core.stickyheaders;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+/**
+ * Applies long random sequences of range notifications to a {@link HeaderIndex}
+ * and compares it after every step against a brute force scan of the list
+ */
+public class HeaderIndexFuzzTest {
+
+    private static final int SEEDS = 200;
+    private static final int STEPS = 500;
+    private static final int MAX_ITEM_COUNT = 300;
+    private static final int MAX_RANGE = 12;
+
+    @Test
+    public void matchesBruteForceScan() {
+        for (int seed = 0; seed < SEEDS; seed++) {
+            fuzz(seed);
+        }
+    }
+
+    private static void fuzz(long seed) {
+        Random random = new Random(seed);
+        final List<Boolean> items = new ArrayList<>();
+        HeaderIndex.HeaderPredicate predicate = new HeaderIndex.HeaderPredicate() {
+            @Override
+            public boolean isHeader(int position) {
+                return items.get(position);
+            }
+        };
+
+        HeaderIndex index = new HeaderIndex();
+        int initialCount = random.nextInt(MAX_ITEM_COUNT);
+        for (int i = 0; i < initialCount; i++) {
+            items.add(random.nextInt(4) == 0);
+        }
+        index.rebuild(items.size(), predicate);
+        verify(index, items, random, seed, -1, "rebuild");
+
+        for (int step = 0; step < STEPS; step++) {
+            String operation;
+            int action = items.isEmpty() ? 0 : random.nextInt(8);
+            if (action < 2 && items.size() < MAX_ITEM_COUNT) {
+                int positionStart = random.nextInt(items.size() + 1);
+                int itemCount = 1 + random.nextInt(MAX_RANGE);
+                for (int i = 0; i < itemCount; i++) {
+                    items.add(positionStart + i, random.nextInt(4) == 0);
+                }
+                index.onItemRangeInserted(positionStart, itemCount, predicate);
+                operation = "insert " + positionStart + " " + itemCount;
+            } else if (action < 4) {
+                int positionStart = random.nextInt(items.size());
+                int itemCount = 1 + random.nextInt(Math.min(MAX_RANGE, items.size() - positionStart));
+                items.subList(positionStart, positionStart + itemCount).clear();
+                index.onItemRangeRemoved(positionStart, itemCount);
+                operation = "remove " + positionStart + " " + itemCount;
+            } else if (action < 6) {
+                // Mostly single item moves like the ones RecyclerView dispatches
+                int itemCount = random.nextBoolean() ? 1 : 1 + random.nextInt(Math.min(MAX_RANGE, items.size()));
+                int fromPosition = random.nextInt(items.size() - itemCount + 1);
+                int toPosition = random.nextInt(items.size() - itemCount + 1);
+                List<Boolean> moved = new ArrayList<>(items.subList(fromPosition, fromPosition + itemCount));
+                items.subList(fromPosition, fromPosition + itemCount).clear();
+                items.addAll(toPosition, moved);
+                index.onItemRangeMoved(fromPosition, toPosition, itemCount);
+                operation = "move " + fromPosition + " " + toPosition + " " + itemCount;
+            } else if (action < 7) {
+                int positionStart = random.nextInt(items.size());
+                int itemCount = 1 + random.nextInt(Math.min(MAX_RANGE, items.size() - positionStart));
+                for (int i = positionStart; i < positionStart + itemCount; i++) {
+                    items.set(i, random.nextInt(4) == 0);
+                }
+                index.onItemRangeChanged(positionStart, itemCount, predicate);
+                operation = "change " + positionStart + " " + itemCount;
+            } else {
+                index.rebuild(items.size(), predicate);
+                operation = "rebuild";
+            }
+
+            verify(index, items, random, seed, step, operation);
+        }
+    }
+
+    private static void verify(HeaderIndex index, List<Boolean> items, Random random,
+                               long seed, int step, String operation) {
+        List<Integer> expected = new ArrayList<>();
+        for (int i = 0; i < items.size(); i++) {
+            if (items.get(i)) {
+                expected.add(i);
+            }
+        }
+
+        List<Integer> actual = new ArrayList<>();
+        for (int i = 0; i < index.size(); i++) {
+            actual.add(index.get(i));
+        }
+        if (!expected.equals(actual)) {
+            fail("seed " + seed + " step " + step + " after " + operation
+                    + ": expected " + expected + " but was " + actual);
+        }
+
+        String message = "seed " + seed + " step " + step + " after " + operation;
+        for (int i = 0; i < 20; i++) {
+            int position = random.nextInt(items.size() + 2) - 1;
+            int before = -1;
+            int next = -1;
+            for (int j = 0; j < expected.size(); j++) {
+                if (expected.get(j) <= position) {
+                    before = j;
+                }
+                if (next == -1 && expected.get(j) >= position) {
+                    next = j;
+                }
+            }
+            assertEquals(message + " contains " + position, expected.contains(position), index.contains(position));
+            assertEquals(message + " findHeaderIndex " + position,
+                    expected.indexOf(position), index.findHeaderIndex(position));
+            assertEquals(message + " findHeaderIndexOrBefore " + position,
+                    before, index.findHeaderIndexOrBefore(position));
+            assertEquals(message + " findHeaderIndexOrNext " + position,
+                    next, index.findHeaderIndexOrNext(position));
+        }
+    }
+}
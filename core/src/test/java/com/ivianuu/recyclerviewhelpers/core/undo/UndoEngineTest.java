@@ -0,0 +1,419 @@
+package com.ivianuu.recyclerviewhelpers.core.undo;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.Executor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class UndoEngineTest {
+
+    private FakeAdapter adapter;
+    private FakeTimer timer;
+    private FakePresenter presenter;
+    private final List<String> commits = new ArrayList<>();
+
+    @Before
+    public void setUp() {
+        adapter = new FakeAdapter();
+        for (int i = 0; i < 10; i++) {
+            adapter.dataSet.add(String.valueOf(i));
+        }
+        timer = new FakeTimer();
+        presenter = new FakePresenter();
+        commits.clear();
+    }
+
+    @Test
+    public void removeAppliesAndUndoRestores() {
+        UndoEngine<String> engine = newBuilder().build();
+
+        engine.remove(new int[]{2, 5});
+        assertEquals(Arrays.asList("0", "1", "3", "4", "6", "7", "8", "9"), adapter.dataSet);
+        assertEquals(1, engine.getUndoableOperationCount());
+        assertTrue(presenter.shown);
+
+        assertTrue(engine.undo());
+        assertEquals(Arrays.asList("0", "1", "2", "3", "4", "5", "6", "7", "8", "9"), adapter.dataSet);
+        assertEquals(0, engine.getUndoableOperationCount());
+        assertFalse(engine.undo());
+        assertEquals(Collections.<String>emptyList(), commits);
+    }
+
+    @Test
+    public void newOperationCommitsPreviousOne() {
+        UndoEngine<String> engine = newBuilder().build();
+
+        engine.remove(new int[]{0});
+        engine.remove(new int[]{0});
+        assertEquals(Collections.singletonList("[0]=[0]"), commits);
+
+        engine.commitAll();
+        assertEquals(Arrays.asList("[0]=[0]", "[0]=[1]"), commits);
+        assertEquals(0, engine.getUndoableOperationCount());
+    }
+
+    @Test
+    public void batchWindowMergesConsecutiveRemovals() {
+        UndoEngine<String> engine = newBuilder()
+                .withMaxUndoOperations(5)
+                .withCommitBatchWindow(100)
+                .build();
+
+        engine.remove(new int[]{1});
+        engine.remove(new int[]{1});
+        engine.commitAll();
+        assertEquals(Collections.<String>emptyList(), commits);
+
+        // The positions are the ones of the data set before the first removal
+        timer.advance(100);
+        assertEquals(Collections.singletonList("[1, 2]=[1, 2]"), commits);
+    }
+
+    @Test
+    public void commitTimeoutCommitsAndDismisses() {
+        UndoEngine<String> engine = newBuilder()
+                .withMaxUndoOperations(5)
+                .withCommitTimeout(1000)
+                .build();
+
+        engine.remove(new int[]{0});
+        timer.advance(600);
+        // Every new operation restarts the timeout
+        engine.remove(new int[]{0});
+        timer.advance(600);
+        assertEquals(Collections.<String>emptyList(), commits);
+        assertEquals(2, engine.getUndoableOperationCount());
+
+        timer.advance(400);
+        assertEquals(Arrays.asList("[0]=[0]", "[0]=[1]"), commits);
+        assertEquals(0, engine.getUndoableOperationCount());
+        assertFalse(presenter.shown);
+    }
+
+    @Test
+    public void undoCancelsCommitTimeout() {
+        UndoEngine<String> engine = newBuilder()
+                .withCommitTimeout(1000)
+                .build();
+
+        engine.remove(new int[]{0});
+        engine.undo();
+        timer.advance(1000);
+        assertEquals(Collections.<String>emptyList(), commits);
+        assertEquals(10, adapter.dataSet.size());
+    }
+
+    @Test
+    public void undoWithStableIdsRestoresAfterAnchorWithIdMinusOne() {
+        UndoEngine<String> engine = newBuilder()
+                .withStableIds(new UndoEngine.ItemIdProvider<String>() {
+                    @Override
+                    public long getItemId(String model) {
+                        // "0" has the id -1
+                        return Long.parseLong(model) - 1;
+                    }
+                })
+                .build();
+
+        engine.remove(new int[]{1});
+        // A page got prepended while the removal was pending
+        adapter.dataSet.add(0, "10");
+
+        engine.undo();
+        assertEquals(Arrays.asList("10", "0", "1", "2", "3", "4", "5", "6", "7", "8", "9"), adapter.dataSet);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void stableIdsWithoutPositionLookupAreRejected() {
+        ListAdapter listAdapter = new ListAdapter();
+        new UndoEngine.Builder<String>()
+                .withAdapter(listAdapter, listAdapter)
+                .withStableIds(new UndoEngine.ItemIdProvider<String>() {
+                    @Override
+                    public long getItemId(String model) {
+                        return Long.parseLong(model);
+                    }
+                })
+                .build();
+    }
+
+    @Test
+    public void burstPastItemBudgetGetsCommitted() {
+        UndoEngine<String> engine = newBuilder()
+                .withMaxUndoOperations(5)
+                .withMaxUndoItems(2)
+                .build();
+
+        engine.remove(new int[]{9});
+        engine.removeInBurst(0);
+        // Over budget, so the older removal gets committed first
+        engine.removeInBurst(0);
+        assertEquals(Collections.singletonList("[9]=[9]"), commits);
+        assertEquals(1, engine.getUndoableOperationCount());
+
+        // The burst alone exceeds the budget now
+        engine.removeInBurst(0);
+        assertEquals(0, engine.getUndoableOperationCount());
+        assertFalse(presenter.shown);
+        assertEquals(2, commits.size());
+        assertEquals(Arrays.asList("3", "4", "5", "6", "7", "8"), adapter.dataSet);
+
+        // The next swipe starts a new burst
+        engine.removeInBurst(0);
+        assertEquals(1, engine.getUndoableOperationCount());
+        engine.undo();
+        assertEquals(Arrays.asList("3", "4", "5", "6", "7", "8"), adapter.dataSet);
+    }
+
+    @Test
+    public void callsDuringBackgroundApplyResolveAgainstAppliedDataSet() {
+        QueueExecutor executor = new QueueExecutor();
+        UndoEngine<String> engine = newBuilder()
+                .withMaxUndoOperations(5)
+                .withBackgroundUpdates(executor, 2)
+                .build();
+
+        engine.remove(new int[]{0, 1});
+        assertTrue(engine.isApplyingInBackground());
+        engine.insert(0, Collections.singletonList("x"));
+        // Refers to the inserted item, which only exists once both previous operations are applied
+        engine.remove(new int[]{0});
+
+        executor.runAll();
+        timer.advance(0);
+        assertFalse(engine.isApplyingInBackground());
+        assertEquals(Arrays.asList("2", "3", "4", "5", "6", "7", "8", "9"), adapter.dataSet);
+        assertEquals(3, engine.getUndoableOperationCount());
+
+        engine.commitAll();
+        assertEquals(Arrays.asList("[0, 1]=[0, 1]", "[0]=[x]"), commits);
+    }
+
+    @Test
+    public void inPlaceChangeDuringBackgroundApplyRunsJobAgain() {
+        QueueExecutor executor = new QueueExecutor();
+        UndoEngine<String> engine = newBuilder()
+                .withBackgroundUpdates(executor, 2)
+                .build();
+
+        engine.remove(new int[]{0, 1});
+        // A page gets appended to the same list while the job runs on the copy
+        adapter.appendInPlace("10");
+        executor.runAll();
+        timer.advance(0);
+        assertTrue(engine.isApplyingInBackground());
+
+        executor.runAll();
+        timer.advance(0);
+        assertFalse(engine.isApplyingInBackground());
+        assertEquals(Arrays.asList("2", "3", "4", "5", "6", "7", "8", "9", "10"), adapter.dataSet);
+    }
+
+    @Test
+    public void backgroundUndoResolvesStableIdsOnMainThread() {
+        QueueExecutor executor = new QueueExecutor();
+        UndoEngine<String> engine = newBuilder()
+                .withStableIds(new UndoEngine.ItemIdProvider<String>() {
+                    @Override
+                    public long getItemId(String model) {
+                        return Long.parseLong(model) - 1;
+                    }
+                })
+                .withBackgroundUpdates(executor, 1)
+                .build();
+
+        engine.remove(new int[]{2, 5});
+        executor.runAll();
+        timer.advance(0);
+        adapter.dataSet.add(0, "10");
+
+        engine.undo();
+        int lookupCalls = adapter.lookupCalls;
+        assertTrue(lookupCalls > 0);
+        executor.runAll();
+        assertEquals(lookupCalls, adapter.lookupCalls);
+
+        timer.advance(0);
+        assertEquals(Arrays.asList("10", "0", "1", "2", "3", "4", "5", "6", "7", "8", "9"), adapter.dataSet);
+    }
+
+    private UndoEngine.Builder<String> newBuilder() {
+        return new UndoEngine.Builder<String>()
+                .withAdapter(adapter, adapter)
+                .withUndoListener(new UndoEngine.UndoListener<String>() {
+                    @Override
+                    public void commitRemove(Set<Integer> positions, List<String> removed) {
+                        commits.add(new TreeSet<>(positions) + "=" + removed);
+                    }
+                })
+                .withPresenter(presenter)
+                .withTimer(timer);
+    }
+
+    private static class FakeAdapter implements UndoEngine.UndoAdapter<String>, UndoEngine.DataSetSwapper<String>,
+            UndoEngine.PositionLookup, ListUpdateListener {
+
+        private List<String> dataSet = new ArrayList<>();
+        private int modificationCount;
+        private int lookupCalls;
+
+        private void appendInPlace(String item) {
+            dataSet.add(item);
+            modificationCount++;
+        }
+
+        @Override
+        public List<String> getDataSet() {
+            return dataSet;
+        }
+
+        @Override
+        public List<String> shareDataSet() {
+            return new ArrayList<>(dataSet);
+        }
+
+        @Override
+        public int getModificationCount() {
+            return modificationCount;
+        }
+
+        @Override
+        public void swapDataSet(List<String> dataSet) {
+            this.dataSet = dataSet;
+            modificationCount++;
+        }
+
+        @Override
+        public int findPositionForId(long id) {
+            lookupCalls++;
+            // Same ids as in undoWithStableIdsRestoresAfterAnchorWithIdMinusOne
+            return dataSet.indexOf(String.valueOf(id + 1));
+        }
+
+        @Override
+        public void onInserted(int position, int count) {
+        }
+
+        @Override
+        public void onRemoved(int position, int count) {
+        }
+
+        @Override
+        public void onMoved(int fromPosition, int toPosition) {
+        }
+
+        @Override
+        public void onChanged(int position, int count) {
+        }
+    }
+
+    private static class ListAdapter implements UndoEngine.UndoAdapter<String>, ListUpdateListener {
+
+        private final List<String> dataSet = new ArrayList<>();
+
+        @Override
+        public List<String> getDataSet() {
+            return dataSet;
+        }
+
+        @Override
+        public void onInserted(int position, int count) {
+        }
+
+        @Override
+        public void onRemoved(int position, int count) {
+        }
+
+        @Override
+        public void onMoved(int fromPosition, int toPosition) {
+        }
+
+        @Override
+        public void onChanged(int position, int count) {
+        }
+    }
+
+    private static class FakePresenter implements UndoPresenter {
+
+        private boolean shown;
+
+        @Override
+        public void show(UndoEngine<?> engine) {
+            shown = true;
+        }
+
+        @Override
+        public void dismiss() {
+            shown = false;
+        }
+    }
+
+    /**
+     * Runs the posted runnables once the time advanced past their delay
+     */
+    private static class FakeTimer implements UndoTimer {
+
+        private final List<Runnable> runnables = new ArrayList<>();
+        private final List<Long> times = new ArrayList<>();
+        private long now;
+
+        @Override
+        public void postDelayed(Runnable runnable, long delayMillis) {
+            runnables.add(runnable);
+            times.add(now + delayMillis);
+        }
+
+        @Override
+        public void cancel(Runnable runnable) {
+            int index;
+            while ((index = runnables.indexOf(runnable)) != -1) {
+                runnables.remove(index);
+                times.remove(index);
+            }
+        }
+
+        private void advance(long millis) {
+            long target = now + millis;
+            while (true) {
+                int next = -1;
+                for (int i = 0; i < times.size(); i++) {
+                    if (times.get(i) <= target && (next == -1 || times.get(i) < times.get(next))) {
+                        next = i;
+                    }
+                }
+                if (next == -1) {
+                    break;
+                }
+                now = times.remove(next);
+                runnables.remove(next).run();
+            }
+            now = target;
+        }
+    }
+
+    private static class QueueExecutor implements Executor {
+
+        private final List<Runnable> commands = new ArrayList<>();
+
+        @Override
+        public void execute(Runnable command) {
+            commands.add(command);
+        }
+
+        private void runAll() {
+            while (!commands.isEmpty()) {
+                commands.remove(0).run();
+            }
+        }
+    }
+}
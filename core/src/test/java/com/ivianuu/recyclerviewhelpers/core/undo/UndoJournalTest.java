@@ -0,0 +1,156 @@
+package com.ivianuu.recyclerviewhelpers.core.undo;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+
+public class UndoJournalTest {
+
+    private static final UndoJournal.Codec<String> CODEC = new UndoJournal.Codec<String>() {
+        @Override
+        public void write(DataOutput out, String model) throws IOException {
+            out.writeUTF(model);
+        }
+
+        @Override
+        public String read(DataInput in) throws IOException {
+            return in.readUTF();
+        }
+    };
+
+    private static final Executor DIRECT_EXECUTOR = new Executor() {
+        @Override
+        public void execute(Runnable command) {
+            command.run();
+        }
+    };
+
+    private File file;
+    private final List<String> commits = Collections.synchronizedList(new ArrayList<String>());
+
+    @Before
+    public void setUp() throws IOException {
+        file = File.createTempFile("undo", ".journal");
+    }
+
+    @After
+    public void tearDown() {
+        file.delete();
+    }
+
+    @Test
+    public void replayCommitsPendingRemovals() throws Exception {
+        ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+        UndoJournal<String> journal = new UndoJournal<>(file, CODEC, 0, executor);
+        long committed = journal.appendPending(new int[]{0}, Collections.singletonList("a"));
+        journal.appendPending(new int[]{2, 4}, Arrays.asList("c", "e"));
+        long reverted = journal.appendPending(new int[]{1}, Collections.singletonList("b"));
+        journal.appendCommitted(new long[]{committed});
+        journal.appendReverted(new long[]{reverted});
+        // The process dies here
+        awaitWrites(executor);
+
+        replay(UndoJournal.RECOVERY_COMMIT);
+        assertEquals(Collections.singletonList("[2, 4]=[c, e]"), commits);
+
+        // The replay truncated the journal
+        commits.clear();
+        replay(UndoJournal.RECOVERY_COMMIT);
+        assertEquals(Collections.<String>emptyList(), commits);
+    }
+
+    @Test
+    public void rollbackDropsPendingRemovals() throws Exception {
+        ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+        UndoJournal<String> journal = new UndoJournal<>(file, CODEC, 0, executor);
+        journal.appendPending(new int[]{0}, Collections.singletonList("a"));
+        awaitWrites(executor);
+
+        replay(UndoJournal.RECOVERY_ROLLBACK);
+        assertEquals(Collections.<String>emptyList(), commits);
+        assertEquals(0, file.length());
+    }
+
+    @Test
+    public void appendsDuringReplayAreWrittenAfterIt() throws Exception {
+        ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+        UndoJournal<String> journal = new UndoJournal<>(file, CODEC, 0, executor);
+        journal.appendPending(new int[]{0}, Collections.singletonList("old"));
+        awaitWrites(executor);
+
+        // Keep the replay from running until the new process appended its own records
+        final CountDownLatch replayBlocked = new CountDownLatch(1);
+        executor = Executors.newSingleThreadScheduledExecutor();
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    replayBlocked.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+        journal = new UndoJournal<>(file, CODEC, 0, executor);
+        journal.replayInBackground(UndoJournal.RECOVERY_COMMIT, new RecordingListener(), DIRECT_EXECUTOR);
+        // Returns right away although the replay didn't run yet, the id doesn't clash with the old record
+        long id = journal.appendPending(new int[]{3}, Collections.singletonList("new"));
+        journal.appendPending(new int[]{5}, Collections.singletonList("newer"));
+        journal.appendCommitted(new long[]{id});
+        assertEquals(Collections.<String>emptyList(), commits);
+
+        replayBlocked.countDown();
+        awaitWrites(executor);
+        assertEquals(Collections.singletonList("[0]=[old]"), commits);
+
+        // Only the records of the second process are left
+        commits.clear();
+        replay(UndoJournal.RECOVERY_COMMIT);
+        assertEquals(Collections.singletonList("[5]=[newer]"), commits);
+    }
+
+    private void replay(int recoveryPolicy) throws Exception {
+        ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+        new UndoJournal<>(file, CODEC, 0, executor)
+                .replayInBackground(recoveryPolicy, new RecordingListener(), DIRECT_EXECUTOR);
+        awaitWrites(executor);
+    }
+
+    /**
+     * Waits until the writes queued so far ran, they are in front of the barrier on the single thread
+     */
+    private static void awaitWrites(ScheduledExecutorService executor) throws Exception {
+        executor.submit(new Runnable() {
+            @Override
+            public void run() {
+            }
+        }).get(5, TimeUnit.SECONDS);
+        executor.shutdown();
+    }
+
+    private class RecordingListener implements UndoEngine.UndoListener<String> {
+
+        @Override
+        public void commitRemove(Set<Integer> positions, List<String> removed) {
+            commits.add(new TreeSet<>(positions) + "=" + removed);
+        }
+    }
+}
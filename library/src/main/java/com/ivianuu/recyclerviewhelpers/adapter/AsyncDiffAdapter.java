@@ -0,0 +1,365 @@
+package com.ivianuu.recyclerviewhelpers.adapter;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.v7.util.DiffUtil;
+import android.support.v7.widget.RecyclerView;
+import com.ivianuu.recyclerviewhelpers.core.stickyheaders.HeaderIndex;
+import com.ivianuu.recyclerviewhelpers.stickyheaders.StickyHeaders;
+import com.ivianuu.recyclerviewhelpers.undo.UndoHelper;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Adapter which takes immutable snapshots of its items via {@link #submitList(List)}. The diff against the
+ * current items and the header positions of the new ones are computed on a background thread, the main
+ * thread only swaps the items and dispatches the fine-grained updates.
+ *
+ * It works with the {@link com.ivianuu.recyclerviewhelpers.stickyheaders.StickyHeadersLinearLayoutManager},
+ * which copies the precomputed header positions instead of updating them for each dispatched range, the {@link UndoHelper}, which splices ranges and swaps
+ * data sets through it, and the {@link com.ivianuu.recyclerviewhelpers.endlessscroll.EndlessScrollHelper},
+ * which can append pages to {@link #getDataSet()} or submit a snapshot containing them.
+ * Undo operations which are still pending while a list gets submitted should use stable ids.
+ */
+public abstract class AsyncDiffAdapter<M, VH extends RecyclerView.ViewHolder> extends RecyclerView.Adapter<VH>
+        implements StickyHeaders, StickyHeaders.HeaderIndexProvider, UndoHelper.UndoAdapter<M>,
+        UndoHelper.SpliceAdapter<M>, UndoHelper.DataSetSwapper<M> {
+
+    private static Executor defaultDiffExecutor;
+
+    private final ItemCallback<M> itemCallback;
+    private final Executor diffExecutor;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    // Replaced whenever the data set gets swapped so the undo engine notices it
+    private DataSet items = new DataSet(new ArrayList<M>());
+    private int modCount;
+
+    // Last submitted list, it equals the items as long as they weren't modified since
+    private List<M> snapshot = Collections.emptyList();
+    private int snapshotModCount;
+
+    // Header positions of the last submitted list, only valid until the items get modified
+    private HeaderIndex headerIndex;
+    private int headerIndexModCount;
+
+    private int submitGeneration;
+
+    protected AsyncDiffAdapter(@NonNull ItemCallback<M> itemCallback) {
+        this(itemCallback, getDefaultDiffExecutor());
+    }
+
+    protected AsyncDiffAdapter(@NonNull ItemCallback<M> itemCallback, @NonNull Executor diffExecutor) {
+        this.itemCallback = itemCallback;
+        this.diffExecutor = diffExecutor;
+    }
+
+    /**
+     * Replaces the items with {@code newItems}, the list must not be modified afterwards
+     */
+    public void submitList(@NonNull List<M> newItems) {
+        submitList(newItems, null);
+    }
+
+    /**
+     * Replaces the items with {@code newItems}, the list must not be modified afterwards.
+     * The callback runs once the updates were dispatched, it doesn't run if another list gets submitted before.
+     */
+    public void submitList(@NonNull final List<M> newItems, @Nullable final Runnable commitCallback) {
+        final int generation = ++submitGeneration;
+
+        if (newItems == snapshot && modCount == snapshotModCount) {
+            if (commitCallback != null) {
+                commitCallback.run();
+            }
+            return;
+        }
+
+        if (newItems.isEmpty()) {
+            // Nothing to diff or to index
+            int removedCount = items.size();
+            swapDataSet(new ArrayList<M>());
+            onListApplied(newItems, new HeaderIndex());
+            notifyItemRangeRemoved(0, removedCount);
+            if (commitCallback != null) {
+                commitCallback.run();
+            }
+            return;
+        }
+
+        // Diff against the last snapshot, or against the items if they were modified since.
+        // The items get copied before their next modification while the diff reads them
+        final List<M> oldItems = modCount == snapshotModCount ? snapshot : items.share();
+        final int submitModCount = modCount;
+
+        diffExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                final List<M> newDataSet = new ArrayList<>(newItems);
+
+                final HeaderIndex newHeaderIndex = new HeaderIndex();
+                newHeaderIndex.rebuild(newDataSet.size(), new HeaderIndex.HeaderPredicate() {
+                    @Override
+                    public boolean isHeader(int position) {
+                        return itemCallback.isStickyHeader(newDataSet.get(position));
+                    }
+                });
+
+                final DiffUtil.DiffResult result = oldItems.isEmpty() ? null
+                        : DiffUtil.calculateDiff(new SnapshotDiffCallback<>(itemCallback, oldItems, newDataSet));
+
+                mainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (generation != submitGeneration) {
+                            // Another list was submitted in the meantime
+                            return;
+                        }
+                        if (submitModCount != modCount) {
+                            // The items were modified while diffing so the result is stale
+                            submitList(newItems, commitCallback);
+                            return;
+                        }
+
+                        swapDataSet(newDataSet);
+                        onListApplied(newItems, newHeaderIndex);
+                        if (result != null) {
+                            result.dispatchUpdatesTo(AsyncDiffAdapter.this);
+                        } else {
+                            notifyItemRangeInserted(0, newDataSet.size());
+                        }
+
+                        if (commitCallback != null) {
+                            commitCallback.run();
+                        }
+                    }
+                });
+            }
+        });
+    }
+
+    private void onListApplied(List<M> newSnapshot, HeaderIndex newHeaderIndex) {
+        snapshot = newSnapshot;
+        snapshotModCount = modCount;
+        headerIndex = newHeaderIndex;
+        headerIndexModCount = snapshotModCount;
+    }
+
+    public M getItem(int position) {
+        return items.get(position);
+    }
+
+    @Override
+    public int getItemCount() {
+        return items.size();
+    }
+
+    @Override
+    public boolean isStickyHeader(int position) {
+        return itemCallback.isStickyHeader(items.get(position));
+    }
+
+    @Override
+    public HeaderIndex getHeaderIndex() {
+        return headerIndex != null && headerIndexModCount == modCount ? headerIndex : null;
+    }
+
+    /**
+     * Returns the current items, modifications have to be notified
+     */
+    @Override
+    public List<M> getDataSet() {
+        return items;
+    }
+
+    @Override
+    public void removeRange(int positionStart, int itemCount) {
+        items.removeRange(positionStart, positionStart + itemCount);
+    }
+
+    @Override
+    public void insertRange(int positionStart, List<M> models) {
+        items.addAll(positionStart, models);
+    }
+
+    @Override
+    public List<M> snapshotRange(int positionStart, int itemCount) {
+        return new ArrayList<>(items.subList(positionStart, positionStart + itemCount));
+    }
+
+    @Override
+    public List<M> shareDataSet() {
+        return items.share();
+    }
+
+    @Override
+    public int getModificationCount() {
+        return modCount;
+    }
+
+    @Override
+    public void swapDataSet(List<M> dataSet) {
+        items = new DataSet(dataSet);
+        modCount++;
+    }
+
+    private static synchronized Executor getDefaultDiffExecutor() {
+        if (defaultDiffExecutor == null) {
+            defaultDiffExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(@NonNull Runnable runnable) {
+                    Thread thread = new Thread(runnable, "AsyncDiffAdapter");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        return defaultDiffExecutor;
+    }
+
+    /**
+     * Compares the items of two lists and tells which ones are sticky headers, all methods but
+     * {@link #isStickyHeader(Object)} are only called on the diff executor
+     */
+    public abstract static class ItemCallback<M> {
+        public abstract boolean areItemsTheSame(M oldItem, M newItem);
+
+        public abstract boolean areContentsTheSame(M oldItem, M newItem);
+
+        @Nullable
+        public Object getChangePayload(M oldItem, M newItem) {
+            return null;
+        }
+
+        /**
+         * Returns whether the item is a sticky header, called on the diff executor and on the main thread
+         */
+        public boolean isStickyHeader(M item) {
+            return false;
+        }
+    }
+
+    private static class SnapshotDiffCallback<M> extends DiffUtil.Callback {
+
+        private final ItemCallback<M> itemCallback;
+        private final List<M> oldItems;
+        private final List<M> newItems;
+
+        private SnapshotDiffCallback(ItemCallback<M> itemCallback, List<M> oldItems, List<M> newItems) {
+            this.itemCallback = itemCallback;
+            this.oldItems = oldItems;
+            this.newItems = newItems;
+        }
+
+        @Override
+        public int getOldListSize() {
+            return oldItems.size();
+        }
+
+        @Override
+        public int getNewListSize() {
+            return newItems.size();
+        }
+
+        @Override
+        public boolean areItemsTheSame(int oldItemPosition, int newItemPosition) {
+            return itemCallback.areItemsTheSame(oldItems.get(oldItemPosition), newItems.get(newItemPosition));
+        }
+
+        @Override
+        public boolean areContentsTheSame(int oldItemPosition, int newItemPosition) {
+            return itemCallback.areContentsTheSame(oldItems.get(oldItemPosition), newItems.get(newItemPosition));
+        }
+
+        @Override
+        public Object getChangePayload(int oldItemPosition, int newItemPosition) {
+            return itemCallback.getChangePayload(oldItems.get(oldItemPosition), newItems.get(newItemPosition));
+        }
+    }
+
+    /**
+     * Counts all modifications, so stale diffs and header positions can be detected.
+     * The items are copied on write once they were shared with a diff
+     */
+    private class DataSet extends AbstractList<M> implements RandomAccess {
+
+        private List<M> delegate;
+        private boolean shared;
+
+        private DataSet(List<M> delegate) {
+            this.delegate = delegate;
+        }
+
+        /**
+         * Returns the items for reading on another thread, the next modification works on a copy of them
+         */
+        private List<M> share() {
+            shared = true;
+            return delegate;
+        }
+
+        private List<M> modify() {
+            AsyncDiffAdapter.this.modCount++;
+            if (shared) {
+                delegate = new ArrayList<>(delegate);
+                shared = false;
+            }
+            return delegate;
+        }
+
+        @Override
+        public M get(int index) {
+            return delegate.get(index);
+        }
+
+        @Override
+        public int size() {
+            return delegate.size();
+        }
+
+        @Override
+        public M set(int index, M element) {
+            return modify().set(index, element);
+        }
+
+        @Override
+        public void add(int index, M element) {
+            modify().add(index, element);
+        }
+
+        @Override
+        public M remove(int index) {
+            return modify().remove(index);
+        }
+
+        @Override
+        public boolean addAll(int index, Collection<? extends M> elements) {
+            return modify().addAll(index, elements);
+        }
+
+        @Override
+        public boolean addAll(Collection<? extends M> elements) {
+            return modify().addAll(elements);
+        }
+
+        @Override
+        public void clear() {
+            modify().clear();
+        }
+
+        @Override
+        public void removeRange(int fromIndex, int toIndex) {
+            modify().subList(fromIndex, toIndex).clear();
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.ivianuu.recyclerviewhelpers.endlessscroll;
+
+import android.support.v7.widget.RecyclerView;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Appends the items of a newly arrived page in chunks of a fixed number of items, one chunk per frame.
+ * Appended items which end up offscreen are never bound, so the cost of a chunk is the dispatch itself
+ * and the layout of the items which become visible, both are bounded by the chunk size
+ */
+class ChunkedPageDispatcher implements IdleTaskScheduler.IdleTask {
+
+    static final int DEFAULT_CHUNK_SIZE = 10;
+
+    private final RecyclerView.Adapter adapter;
+    private final int chunkSize;
+
+    private final ArrayList<PendingPage<?>> pendingPages = new ArrayList<>();
+
+    // Moving average of the time it took to append a chunk and notify the adapter
+    private long averageDispatchTimeNs;
+
+    ChunkedPageDispatcher(RecyclerView.Adapter adapter, int chunkSize) {
+        this.adapter = adapter;
+        this.chunkSize = chunkSize;
+    }
+
+    <M> void add(List<M> dataSet, List<? extends M> page) {
+        pendingPages.add(new PendingPage<>(dataSet, page));
+    }
+
+    boolean hasPendingItems() {
+        return !pendingPages.isEmpty();
+    }
+
+    void clear() {
+        pendingPages.clear();
+    }
+
+    @Override
+    public long getEstimatedCostNs() {
+        return averageDispatchTimeNs;
+    }
+
+    @Override
+    public boolean run(long deadlineNs) {
+        if (pendingPages.isEmpty()) {
+            return true;
+        }
+
+        long start = System.nanoTime();
+        PendingPage<?> pendingPage = pendingPages.get(0);
+        pendingPage.dispatch(adapter, chunkSize);
+        if (pendingPage.isDone()) {
+            pendingPages.remove(0);
+        }
+        long dispatchTimeNs = System.nanoTime() - start;
+        averageDispatchTimeNs = averageDispatchTimeNs != 0
+                ? (averageDispatchTimeNs / 4 * 3) + (dispatchTimeNs / 4) : dispatchTimeNs;
+
+        return pendingPages.isEmpty();
+    }
+
+    private static class PendingPage<M> {
+
+        private final List<M> dataSet;
+        private final List<? extends M> page;
+        private int dispatched;
+
+        private PendingPage(List<M> dataSet, List<? extends M> page) {
+            this.dataSet = dataSet;
+            this.page = page;
+        }
+
+        private void dispatch(RecyclerView.Adapter adapter, int chunkSize) {
+            int count = Math.min(chunkSize, page.size() - dispatched);
+            int positionStart = dataSet.size();
+            dataSet.addAll(page.subList(dispatched, dispatched + count));
+            dispatched += count;
+            adapter.notifyItemRangeInserted(positionStart, count);
+        }
+
+        private boolean isDone() {
+            return dispatched == page.size();
+        }
+    }
+}
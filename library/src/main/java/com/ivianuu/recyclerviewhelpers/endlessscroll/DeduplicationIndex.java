@@ -0,0 +1,68 @@
+package com.ivianuu.recyclerviewhelpers.endlessscroll;
+
+import android.support.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Remembers the ids of all items which are present in the adapter, so pages of a keyset pagination
+ * which overlap with already loaded data can be filtered in O(1) per item
+ */
+public final class DeduplicationIndex<T> {
+
+    private final ItemIdProvider<T> itemIdProvider;
+    private final LongHashSet ids = new LongHashSet();
+
+    public DeduplicationIndex(@NonNull ItemIdProvider<T> itemIdProvider) {
+        this.itemIdProvider = itemIdProvider;
+    }
+
+    /**
+     * Returns the items of the page which are not present yet and adds them to the index
+     */
+    @NonNull
+    public List<T> filter(@NonNull List<T> page) {
+        List<T> filtered = new ArrayList<>(page.size());
+        for (int i = 0, size = page.size(); i < size; i++) {
+            T item = page.get(i);
+            if (ids.add(itemIdProvider.getItemId(item))) {
+                filtered.add(item);
+            }
+        }
+        return filtered;
+    }
+
+    /**
+     * Adds the items to the index, should be used for items which did not pass through {@link #filter(List)}
+     */
+    public void addAll(@NonNull Collection<T> items) {
+        for (T item : items) {
+            ids.add(itemIdProvider.getItemId(item));
+        }
+    }
+
+    /**
+     * Removes the item from the index, should be called when it was removed from the adapter
+     */
+    public void remove(@NonNull T item) {
+        ids.remove(itemIdProvider.getItemId(item));
+    }
+
+    public boolean contains(long id) {
+        return ids.contains(id);
+    }
+
+    public int size() {
+        return ids.size();
+    }
+
+    public void clear() {
+        ids.clear();
+    }
+
+    public interface ItemIdProvider<T> {
+        long getItemId(T item);
+    }
+}
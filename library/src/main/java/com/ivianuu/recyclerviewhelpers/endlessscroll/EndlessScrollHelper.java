@@ -1,43 +1,74 @@
 package com.ivianuu.recyclerviewhelpers.endlessscroll;
 
+import android.os.Parcel;
+import android.os.Parcelable;
 import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.v4.view.ViewCompat;
 import android.support.v7.widget.GridLayoutManager;
 import android.support.v7.widget.LinearLayoutManager;
 import android.support.v7.widget.RecyclerView;
 import android.support.v7.widget.StaggeredGridLayoutManager;
 import android.util.Log;
+import android.util.SparseIntArray;
+import com.ivianuu.recyclerviewhelpers.core.endlessscroll.PagingState;
+import com.ivianuu.recyclerviewhelpers.core.metrics.Metrics;
+import com.ivianuu.recyclerviewhelpers.core.metrics.MetricsListener;
+
+import java.util.List;
 
 public final class EndlessScrollHelper {
 
     private static final String TAG = EndlessScrollHelper.class.getSimpleName();
 
+    // Default capacity of the RecycledViewPool per view type
+    private static final int DEFAULT_MAX_RECYCLED_VIEWS = 5;
+
     private final RecyclerView recyclerView;
+    private final RecyclerView.Adapter adapter;
 
     private final Callbacks callbacks;
+    private final KeysetCallbacks keysetCallbacks;
+    private final DeduplicationIndex<?> deduplicationIndex;
+
+    private final VisibleRangeStrategy visibleRangeStrategy;
 
-    private final int loadingTriggerThreshold;
+    private final LoadScheduler loadScheduler;
 
     private WrapperAdapter wrapperAdapter;
     private WrapperSpanSizeLookup wrapperSpanSizeLookup;
+    private ViewHolderPreInflater viewHolderPreInflater;
 
-    private boolean loading;
+    // Only used if loads are scheduled into idle time
+    private IdleTaskScheduler idleTaskScheduler;
+    private ChunkedPageDispatcher chunkedPageDispatcher;
+    private long averageLoadMoreTimeNs;
+
+    private final PagingState pagingState;
     private int visibleItemCount;
-    private int previousTotal;
-    private int mTotalItemCount;
-    private int currentPage = 1;
-    private boolean allItemsLoaded;
+
+    // Moment the running load was triggered, only tracked if a metrics listener is set
+    private long loadMoreTriggeredAtNs;
+
+    // Whether an end offset check is scheduled for the next frame and whether the adapter changed since the last one
+    private boolean endOffsetCheckScheduled;
+    private boolean adapterDataChanged;
 
     private EndlessScrollHelper(Builder builder) {
         recyclerView = builder.recyclerView;
+        adapter = recyclerView.getAdapter();
         callbacks = builder.callbacks;
-        loadingTriggerThreshold = builder.loadingTriggerThreshold;
+        keysetCallbacks = builder.keysetCallbacks;
+        deduplicationIndex = builder.deduplicationIndex;
+        pagingState = new PagingState(builder.loadingTriggerThreshold, keysetCallbacks != null);
+        visibleRangeStrategy = builder.visibleRangeStrategy;
+        loadScheduler = builder.loadScheduler;
 
         // Attach scrolling listener in order to perform end offset check on each scroll event
         recyclerView.addOnScrollListener(mOnScrollListener);
 
         if (builder.addLoadingItem) {
             // Wrap existing adapter with new adapter that will add loading row
-            RecyclerView.Adapter adapter = recyclerView.getAdapter();
             wrapperAdapter = new WrapperAdapter(adapter, builder.loadingItemCreator);
             adapter.registerAdapterDataObserver(mDataObserver);
             recyclerView.setAdapter(wrapperAdapter);
@@ -50,6 +81,18 @@ public final class EndlessScrollHelper {
                         wrapperAdapter);
                 ((GridLayoutManager) recyclerView.getLayoutManager()).setSpanSizeLookup(wrapperSpanSizeLookup);
             }
+
+            warmRecycledViewPool(builder);
+        }
+
+        if (builder.idlePrefetch) {
+            idleTaskScheduler = new IdleTaskScheduler(recyclerView);
+            chunkedPageDispatcher = new ChunkedPageDispatcher(adapter, ChunkedPageDispatcher.DEFAULT_CHUNK_SIZE);
+        }
+
+        // Restore the paging state before the initial check so it won't load a page which has already been loaded
+        if (builder.savedState != null) {
+            onRestoreInstanceState(builder.savedState);
         }
 
         // Trigger initial check since adapter might not have any items initially so no scrolling events upon
@@ -57,75 +100,241 @@ public final class EndlessScrollHelper {
         checkEndOffset();
     }
 
+    private void warmRecycledViewPool(Builder builder) {
+        RecyclerView.RecycledViewPool pool = recyclerView.getRecycledViewPool();
+        if (builder.loadingItemPoolCapacity != -1) {
+            pool.setMaxRecycledViews(WrapperAdapter.ITEM_VIEW_TYPE_LOADING, builder.loadingItemPoolCapacity);
+        }
+
+        boolean preInflateLoadingItems = builder.preInflatedLoadingItems > 0
+                && builder.loadingItemCreator instanceof PreInflatableViewHolderCreator;
+        if (!preInflateLoadingItems && builder.preInflatedViewTypes.size() == 0) {
+            return;
+        }
+
+        viewHolderPreInflater = new ViewHolderPreInflater(recyclerView, wrapperAdapter);
+
+        if (preInflateLoadingItems) {
+            viewHolderPreInflater.preInflate((PreInflatableViewHolderCreator) builder.loadingItemCreator,
+                    WrapperAdapter.ITEM_VIEW_TYPE_LOADING, builder.preInflatedLoadingItems);
+        }
+
+        for (int i = 0; i < builder.preInflatedViewTypes.size(); i++) {
+            int viewType = builder.preInflatedViewTypes.keyAt(i);
+            int count = builder.preInflatedViewTypes.valueAt(i);
+            // Make sure the pool keeps all of them
+            pool.setMaxRecycledViews(viewType, Math.max(count, DEFAULT_MAX_RECYCLED_VIEWS));
+            viewHolderPreInflater.preInflate(
+                    (PreInflatableViewHolderCreator) wrapperAdapter.getWrappedAdapter(), viewType, count);
+        }
+    }
+
     private void checkEndOffset() {
-        visibleItemCount = recyclerView.getChildCount();
-        mTotalItemCount = recyclerView.getLayoutManager().getItemCount();
-
-        int firstVisibleItemPosition;
-        if (recyclerView.getLayoutManager() instanceof LinearLayoutManager) {
-            firstVisibleItemPosition = ((LinearLayoutManager) recyclerView.getLayoutManager()).findFirstVisibleItemPosition();
-        } else if (recyclerView.getLayoutManager() instanceof StaggeredGridLayoutManager) {
-            // https://code.google.com/p/android/issues/detail?id=181461
-            if (recyclerView.getLayoutManager().getChildCount() > 0) {
-                firstVisibleItemPosition = ((StaggeredGridLayoutManager) recyclerView.getLayoutManager()).findFirstVisibleItemPositions(null)[0];
-            } else {
-                firstVisibleItemPosition = 0;
+        Metrics.Tracer tracer = Metrics.beginSection("EndlessScroll.checkEndOffset");
+        try {
+            checkEndOffsetInternal();
+        } finally {
+            Metrics.endSection(tracer);
+        }
+    }
+
+    private void checkEndOffsetInternal() {
+        RecyclerView.LayoutManager layoutManager = recyclerView.getLayoutManager();
+        visibleItemCount = layoutManager.getChildCount();
+
+        int lastVisibleItemPosition = visibleRangeStrategy.findLastVisibleItemPosition(layoutManager);
+        int flags = pagingState.checkEndOffset(layoutManager.getItemCount(), lastVisibleItemPosition,
+                isDispatchingPage());
+
+        if ((flags & PagingState.FLAG_LOAD_FINISHED) != 0) {
+            reportLoadMoreCompleted();
+            onLoadFinished();
+            Log.d(TAG, "were finished with loading");
+        } else if ((flags & PagingState.FLAG_LOADING) != 0) {
+            Log.d(TAG, "were actually loading");
+            if (loadScheduler != null && loadScheduler.isPending(this)) {
+                // Our load is still waiting, maybe we became visible in the meantime
+                loadScheduler.dispatchPendingLoads();
             }
+        }
+
+        if ((flags & PagingState.FLAG_LOAD_MORE) != 0) {
+            requestLoadMore();
+            Log.d(TAG, "we should load some more items now current page " + pagingState.getCurrentPage());
+        }
+    }
+
+    private void requestLoadMore() {
+        pagingState.startLoading();
+        loadMoreTriggeredAtNs = Metrics.getListener() != null ? System.nanoTime() : 0;
+        if (loadScheduler != null) {
+            // The scheduler calls onLoadAdmitted() once there is a free slot
+            loadScheduler.requestLoad(this);
         } else {
-            throw new IllegalStateException("LayoutManager needs to subclass LinearLayoutManager or StaggeredGridLayoutManager");
+            startLoadMore();
         }
+    }
 
-        // check if were finished with loading
-        if (loading) {
-            if (mTotalItemCount > previousTotal) {
-                loading = false;
-                previousTotal = mTotalItemCount;
-                Log.d(TAG, "were finished with loading");
-            } else {
-                Log.d(TAG, "were actually loading");
-            }
+    void onLoadAdmitted() {
+        startLoadMore();
+    }
+
+    private void startLoadMore() {
+        if (idleTaskScheduler != null) {
+            idleTaskScheduler.schedule(mLoadMoreTask);
+        } else {
+            loadMore();
+        }
+    }
+
+    private void onLoadFinished() {
+        if (loadScheduler != null) {
+            loadScheduler.onLoadFinished(this);
         }
-        // Check if end of the list is reached (counting threshold) or if there is no items at all
-        if ((mTotalItemCount - visibleItemCount) <= (firstVisibleItemPosition + loadingTriggerThreshold)
-                || mTotalItemCount == 0) {
-            Log.d(TAG, "first check passed");
-            // Call load more only if loading is not currently in progress and if there is more items to load
-            if (!loading && !allItemsLoaded) {
-                currentPage ++;
-                callbacks.onLoadMore(currentPage);
-                loading = true;
-                Log.d(TAG, "we should load some more items now current page " + currentPage);
+    }
+
+    private void reportLoadMoreCompleted() {
+        MetricsListener metricsListener = Metrics.getListener();
+        if (metricsListener != null && loadMoreTriggeredAtNs != 0) {
+            metricsListener.onLoadMoreCompleted(pagingState.getCurrentPage(),
+                    System.nanoTime() - loadMoreTriggeredAtNs);
+        }
+        loadMoreTriggeredAtNs = 0;
+    }
+
+    RecyclerView getRecyclerView() {
+        return recyclerView;
+    }
+
+    private void loadMore() {
+        int page = pagingState.nextPage();
+        Metrics.Tracer tracer = Metrics.beginSection("EndlessScroll.loadMore");
+        try {
+            if (keysetCallbacks != null) {
+                keysetCallbacks.onLoadMore(pagingState.getContinuationToken());
             } else {
-                Log.d(TAG, "were already loading or all items have loaded");
+                callbacks.onLoadMore(page);
             }
+        } finally {
+            Metrics.endSection(tracer);
+        }
+    }
+
+    private final IdleTaskScheduler.IdleTask mLoadMoreTask = new IdleTaskScheduler.IdleTask() {
+        @Override
+        public long getEstimatedCostNs() {
+            return averageLoadMoreTimeNs;
+        }
+
+        @Override
+        public boolean run(long deadlineNs) {
+            long start = System.nanoTime();
+            loadMore();
+            long loadMoreTimeNs = System.nanoTime() - start;
+            averageLoadMoreTimeNs = averageLoadMoreTimeNs != 0
+                    ? (averageLoadMoreTimeNs / 4 * 3) + (loadMoreTimeNs / 4) : loadMoreTimeNs;
+            return true;
+        }
+    };
+
+    private boolean isDispatchingPage() {
+        return chunkedPageDispatcher != null && chunkedPageDispatcher.hasPendingItems();
+    }
+
+    /**
+     * Appends the loaded page to the data set of the adapter and notifies it. If idle prefetch is enabled
+     * the items are appended in chunks of a few items, one chunk per frame.
+     * The page isn't deduplicated, pass it through {@link DeduplicationIndex#filter(List)} first if needed
+     */
+    public <M> void appendPage(@NonNull List<M> dataSet, @NonNull List<? extends M> page) {
+        if (page.isEmpty()) {
+            return;
+        }
+
+        if (chunkedPageDispatcher != null) {
+            chunkedPageDispatcher.add(dataSet, page);
+            idleTaskScheduler.schedule(chunkedPageDispatcher);
+        } else {
+            int positionStart = dataSet.size();
+            dataSet.addAll(page);
+            adapter.notifyItemRangeInserted(positionStart, page.size());
         }
     }
 
     private void onAdapterDataChanged() {
-        wrapperAdapter.showLoadingItem(!allItemsLoaded);
-        checkEndOffset();
+        adapterDataChanged = true;
+        scheduleEndOffsetCheck();
+    }
+
+    /**
+     * Coalesces all scroll and adapter events of a frame into a single end offset check
+     */
+    private void scheduleEndOffsetCheck() {
+        if (!endOffsetCheckScheduled) {
+            endOffsetCheckScheduled = true;
+            ViewCompat.postOnAnimation(recyclerView, mEndOffsetCheckRunnable);
+        }
     }
 
+    private final Runnable mEndOffsetCheckRunnable = new Runnable() {
+        @Override
+        public void run() {
+            endOffsetCheckScheduled = false;
+            if (adapterDataChanged) {
+                adapterDataChanged = false;
+                if (wrapperAdapter != null) {
+                    wrapperAdapter.showLoadingItem(!pagingState.isAllItemsLoaded());
+                }
+            }
+            checkEndOffset();
+        }
+    };
+
     private final RecyclerView.OnScrollListener mOnScrollListener = new RecyclerView.OnScrollListener() {
         @Override
         public void onScrolled(RecyclerView recyclerView, int dx, int dy) {
-            checkEndOffset(); // Each time when list is scrolled check if end of the list is reached
+            scheduleEndOffsetCheck(); // Each time when list is scrolled check if end of the list is reached
         }
     };
 
     public void setAllItemsLoaded() {
-        allItemsLoaded = true;
+        pagingState.setAllItemsLoaded();
+        onLoadFinished();
         if (wrapperAdapter != null) {
             wrapperAdapter.showLoadingItem(false);
         }
     }
 
+    /**
+     * Sets the continuation token returned by the last load, which will be passed to the next
+     * {@link KeysetCallbacks#onLoadMore(String)} call. A {@code null} token marks the end of the data.
+     * Should be called after the page was appended, the token ends the running load even if the page was empty
+     */
+    public void setContinuationToken(@Nullable String continuationToken) {
+        boolean loadFinished = pagingState.setContinuationToken(continuationToken,
+                recyclerView.getLayoutManager().getItemCount());
+        if (loadFinished) {
+            reportLoadMoreCompleted();
+        }
+        if (loadFinished || continuationToken == null) {
+            onLoadFinished();
+        }
+        if (continuationToken == null && wrapperAdapter != null) {
+            wrapperAdapter.showLoadingItem(false);
+        }
+    }
+
+    @Nullable
+    public String getContinuationToken() {
+        return pagingState.getContinuationToken();
+    }
+
     public int getTotalItemCount() {
-        return mTotalItemCount;
+        return pagingState.getTotalItemCount();
     }
 
     public int getPreviousTotal() {
-        return previousTotal;
+        return pagingState.getPreviousTotal();
     }
 
     public int getVisibleItemCount() {
@@ -133,28 +342,113 @@ public final class EndlessScrollHelper {
     }
 
     public int getCurrentPage() {
-        return currentPage;
+        return pagingState.getCurrentPage();
     }
 
     public void resetPageCount() {
         resetPageCount(0);
     }
 
+    /**
+     * Should be called if the requested page could not be loaded, the same page will be requested again
+     * the next time the end of the list is reached
+     */
+    public void setLoadFailed() {
+        if (pagingState.setLoadFailed()) {
+            loadMoreTriggeredAtNs = 0;
+            onLoadFinished();
+        }
+    }
+
     public void resetPageCount(int page) {
-        // resetting values
-        mTotalItemCount = 0;
-        previousTotal = 0;
-        loading = true;
-        currentPage = page;
-        allItemsLoaded = false;
+        if (idleTaskScheduler != null) {
+            idleTaskScheduler.cancel();
+            chunkedPageDispatcher.clear();
+        }
+        onLoadFinished();
+
+        pagingState.reset(page);
+        if (deduplicationIndex != null) {
+            deduplicationIndex.clear();
+        }
         if (wrapperAdapter != null) {
             wrapperAdapter.showLoadingItem(true);
         }
-        callbacks.onLoadMore(currentPage);
+        requestLoadMore();
+    }
+
+    /**
+     * Invalidates all cached span indices of the loading row span lookup, has to be called
+     * if the span sizes of the grid change without an adapter notification
+     */
+    public void invalidateSpanIndexCache() {
+        if (wrapperSpanSizeLookup != null) {
+            wrapperSpanSizeLookup.invalidateAllSpanIndices();
+        }
+    }
+
+    /**
+     * Returns the paging state which can be restored with {@link #onRestoreInstanceState(Parcelable)}
+     * or {@link Builder#withSavedState(Parcelable)}. Only the paging cursor is saved, the deduplication index
+     * has to be rebuilt from the restored data set with {@link DeduplicationIndex#addAll(java.util.Collection)}
+     */
+    @NonNull
+    public Parcelable onSaveInstanceState() {
+        SavedState ss = new SavedState();
+        // A running load doesn't survive the process death, so its page gets requested again after restoring
+        ss.currentPage = pagingState.isLoading() ? pagingState.getCurrentPage() - 1 : pagingState.getCurrentPage();
+        ss.previousTotal = pagingState.getPreviousTotal();
+        ss.totalItemCount = pagingState.getTotalItemCount();
+        ss.allItemsLoaded = pagingState.isAllItemsLoaded();
+        ss.continuationToken = pagingState.getContinuationToken();
+        return ss;
+    }
+
+    /**
+     * Requests the page which is currently loading again, useful if the request got lost
+     */
+    public void retryLoadMore() {
+        if (!pagingState.isLoading() || pagingState.isAllItemsLoaded()) {
+            return;
+        }
+
+        if (keysetCallbacks != null) {
+            keysetCallbacks.onLoadMore(pagingState.getContinuationToken());
+        } else {
+            callbacks.onLoadMore(pagingState.getCurrentPage());
+        }
+    }
+
+    /**
+     * Restores the paging state, prefer {@link Builder#withSavedState(Parcelable)} since the initial
+     * end offset check of the helper might already request the next page otherwise
+     */
+    public void onRestoreInstanceState(@Nullable Parcelable state) {
+        if (!(state instanceof SavedState)) {
+            return;
+        }
+
+        SavedState ss = (SavedState) state;
+        pagingState.restore(ss.currentPage, ss.previousTotal, ss.totalItemCount, false,
+                ss.allItemsLoaded, ss.continuationToken);
+        if (wrapperAdapter != null) {
+            wrapperAdapter.showLoadingItem(!pagingState.isAllItemsLoaded());
+        }
     }
 
     public void unbind() {
         recyclerView.removeOnScrollListener(mOnScrollListener);   // Remove scroll listener
+        recyclerView.removeCallbacks(mEndOffsetCheckRunnable);    // Drop the pending end offset check
+        endOffsetCheckScheduled = false;
+        adapterDataChanged = false;
+        if (idleTaskScheduler != null) {
+            idleTaskScheduler.cancel();                           // Drop pending loads and pages
+            chunkedPageDispatcher.clear();
+        }
+        if (viewHolderPreInflater != null) {
+            viewHolderPreInflater.cancel();                       // Drop pending pre inflations
+        }
+        onLoadFinished();                                         // Release the slot of the load scheduler
         if (recyclerView.getAdapter() instanceof WrapperAdapter) {
             WrapperAdapter wrapperAdapter = (WrapperAdapter) recyclerView.getAdapter();
             RecyclerView.Adapter adapter = wrapperAdapter.getWrappedAdapter();
@@ -163,6 +457,7 @@ public final class EndlessScrollHelper {
         }
         if (recyclerView.getLayoutManager() instanceof GridLayoutManager && wrapperSpanSizeLookup != null) {
             // Swap back original SpanSizeLookup
+            wrapperSpanSizeLookup.release();
             GridLayoutManager.SpanSizeLookup spanSizeLookup = wrapperSpanSizeLookup.getWrappedSpanSizeLookup();
             ((GridLayoutManager) recyclerView.getLayoutManager()).setSpanSizeLookup(spanSizeLookup);
         }
@@ -201,7 +496,7 @@ public final class EndlessScrollHelper {
 
         @Override
         public void onItemRangeMoved(int fromPosition, int toPosition, int itemCount) {
-            wrapperAdapter.notifyItemMoved(fromPosition, toPosition);
+            wrapperAdapter.notifyItemRangeMoved(fromPosition, toPosition, itemCount);
             onAdapterDataChanged();
         }
     };
@@ -210,11 +505,20 @@ public final class EndlessScrollHelper {
 
         private RecyclerView recyclerView;
         private EndlessScrollHelper.Callbacks callbacks;
+        private KeysetCallbacks keysetCallbacks;
+        private DeduplicationIndex<?> deduplicationIndex;
 
         private int loadingTriggerThreshold = 1;
+        private VisibleRangeStrategy visibleRangeStrategy;
         private boolean addLoadingItem = true;
         private LoadingItemCreator loadingItemCreator;
         private int loadingItemSpan = -1;
+        private int loadingItemPoolCapacity = -1;
+        private int preInflatedLoadingItems = 1;
+        private final SparseIntArray preInflatedViewTypes = new SparseIntArray();
+        private Parcelable savedState;
+        private boolean idlePrefetch;
+        private LoadScheduler loadScheduler;
 
         public Builder() {
 
@@ -230,11 +534,37 @@ public final class EndlessScrollHelper {
             return this;
         }
 
+        /**
+         * Uses keyset pagination, the helper passes the continuation token set through
+         * {@link EndlessScrollHelper#setContinuationToken(String)} to each load instead of a page number
+         */
+        public Builder withKeysetCallbacks(@NonNull KeysetCallbacks keysetCallbacks) {
+            this.keysetCallbacks = keysetCallbacks;
+            return this;
+        }
+
+        /**
+         * The index will be cleared whenever the page count gets reset. The helper doesn't filter pages itself,
+         * pass them through {@link DeduplicationIndex#filter(List)} before {@link EndlessScrollHelper#appendPage(List, List)}
+         */
+        public Builder withDeduplicationIndex(@NonNull DeduplicationIndex<?> deduplicationIndex) {
+            this.deduplicationIndex = deduplicationIndex;
+            return this;
+        }
+
         public Builder withLoadingTriggerThreshold(int threshold) {
             this.loadingTriggerThreshold = threshold;
             return this;
         }
 
+        /**
+         * Sets the strategy to find the last visible item, by default it is chosen based on the layout manager
+         */
+        public Builder withVisibleRangeStrategy(@NonNull VisibleRangeStrategy visibleRangeStrategy) {
+            this.visibleRangeStrategy = visibleRangeStrategy;
+            return this;
+        }
+
         public Builder withAddLoadingItem(boolean addLoadingItem) {
             this.addLoadingItem = addLoadingItem;
             return this;
@@ -250,12 +580,69 @@ public final class EndlessScrollHelper {
             return this;
         }
 
+        /**
+         * Sets the capacity of the {@link RecyclerView.RecycledViewPool} for loading items
+         */
+        public Builder withLoadingItemPoolCapacity(int loadingItemPoolCapacity) {
+            this.loadingItemPoolCapacity = loadingItemPoolCapacity;
+            return this;
+        }
+
+        /**
+         * Sets how many loading items will be inflated off the main thread at build time,
+         * the {@link LoadingItemCreator} needs to implement {@link PreInflatableViewHolderCreator} for this
+         */
+        public Builder withPreInflatedLoadingItems(int count) {
+            this.preInflatedLoadingItems = count;
+            return this;
+        }
+
+        /**
+         * Inflates {@code count} view holders of the wrapped adapter's {@code viewType} off the main thread
+         * at build time, useful for placeholder items. The adapter needs to implement
+         * {@link PreInflatableViewHolderCreator} for this and the loading item has to be added,
+         * its wrapper adapter hands out the pre inflated views
+         */
+        public Builder withPreInflatedViewHolders(int viewType, int count) {
+            preInflatedViewTypes.put(viewType, count);
+            return this;
+        }
+
+        /**
+         * Schedules loads into the idle time between frames instead of running them inside the scroll frame,
+         * pages passed to {@link EndlessScrollHelper#appendPage(List, List)} will be appended in chunks
+         * of a few items, one chunk per frame
+         */
+        public Builder withIdlePrefetch(boolean idlePrefetch) {
+            this.idlePrefetch = idlePrefetch;
+            return this;
+        }
+
+        /**
+         * Lets the shared scheduler decide when the loads of this helper can be started
+         */
+        public Builder withLoadScheduler(@NonNull LoadScheduler loadScheduler) {
+            this.loadScheduler = loadScheduler;
+            return this;
+        }
+
+        /**
+         * Restores the paging state returned by {@link EndlessScrollHelper#onSaveInstanceState()}
+         */
+        public Builder withSavedState(@Nullable Parcelable savedState) {
+            this.savedState = savedState;
+            return this;
+        }
+
         public EndlessScrollHelper build() {
             if (recyclerView == null) {
                 throw new IllegalStateException("recyclerview has to be set");
             }
-            if (callbacks == null) {
-                throw new IllegalStateException("callbacks have to be set");
+            if (callbacks == null && keysetCallbacks == null) {
+                throw new IllegalStateException("callbacks or keyset callbacks have to be set");
+            }
+            if (callbacks != null && keysetCallbacks != null) {
+                throw new IllegalStateException("only one of callbacks or keyset callbacks can be set");
             }
             if (recyclerView.getAdapter() == null) {
                 throw new IllegalStateException("Adapter needs to be set!");
@@ -263,6 +650,23 @@ public final class EndlessScrollHelper {
             if (recyclerView.getLayoutManager() == null) {
                 throw new IllegalStateException("LayoutManager needs to be set on the RecyclerView");
             }
+            if (preInflatedViewTypes.size() > 0
+                    && !(recyclerView.getAdapter() instanceof PreInflatableViewHolderCreator)) {
+                throw new IllegalStateException("Adapter needs to implement PreInflatableViewHolderCreator");
+            }
+            if (preInflatedViewTypes.size() > 0 && !addLoadingItem) {
+                throw new IllegalStateException("pre inflated view holders need the loading item to be added");
+            }
+
+            if (visibleRangeStrategy == null) {
+                if (recyclerView.getLayoutManager() instanceof LinearLayoutManager) {
+                    visibleRangeStrategy = VisibleRangeStrategy.LINEAR;
+                } else if (recyclerView.getLayoutManager() instanceof StaggeredGridLayoutManager) {
+                    visibleRangeStrategy = new StaggeredGridVisibleRangeStrategy();
+                } else {
+                    visibleRangeStrategy = VisibleRangeStrategy.CHILDREN;
+                }
+            }
 
             if (loadingItemCreator == null) {
                 loadingItemCreator = LoadingItemCreator.DEFAULT;
@@ -278,8 +682,60 @@ public final class EndlessScrollHelper {
         }
     }
 
+    public static class SavedState implements Parcelable {
+        private int currentPage;
+        private int previousTotal;
+        private int totalItemCount;
+        private boolean allItemsLoaded;
+        private String continuationToken;
+
+        public SavedState() {
+        }
+
+        public SavedState(Parcel in) {
+            currentPage = in.readInt();
+            previousTotal = in.readInt();
+            totalItemCount = in.readInt();
+            allItemsLoaded = in.readInt() == 1;
+            continuationToken = in.readString();
+        }
+
+        @Override
+        public int describeContents() {
+            return 0;
+        }
+
+        @Override
+        public void writeToParcel(@NonNull Parcel dest, int flags) {
+            dest.writeInt(currentPage);
+            dest.writeInt(previousTotal);
+            dest.writeInt(totalItemCount);
+            dest.writeInt(allItemsLoaded ? 1 : 0);
+            dest.writeString(continuationToken);
+        }
+
+        public static final Parcelable.Creator<SavedState> CREATOR = new Parcelable.Creator<SavedState>() {
+            @Override
+            public SavedState createFromParcel(Parcel in) {
+                return new SavedState(in);
+            }
+
+            @Override
+            public SavedState[] newArray(int size) {
+                return new SavedState[size];
+            }
+        };
+    }
+
     public interface Callbacks {
         void onLoadMore(int currentPage);
     }
 
+    public interface KeysetCallbacks {
+        /**
+         * @param continuationToken the token returned by the previous load or {@code null} for the first page
+         */
+        void onLoadMore(@Nullable String continuationToken);
+    }
+
 }
@@ -0,0 +1,129 @@
+package com.ivianuu.recyclerviewhelpers.endlessscroll;
+
+import android.support.v4.view.ViewCompat;
+import android.support.v7.widget.RecyclerView;
+import android.view.Display;
+
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs tasks in the idle time between frames, following the idea of RecyclerView's GapWorker.
+ * The scheduler is posted after the current frame and runs tasks until the deadline of the next frame,
+ * everything which doesn't fit anymore will be deferred to the next frame
+ */
+class IdleTaskScheduler implements Runnable {
+
+    // Tasks which have been deferred this often run regardless of the remaining budget
+    private static final int MAX_DEFERRED_FRAMES = 4;
+
+    private final RecyclerView recyclerView;
+    private final ArrayList<IdleTask> tasks = new ArrayList<>();
+
+    private long frameIntervalNs;
+    private boolean posted;
+    private int deferredFrames;
+
+    IdleTaskScheduler(RecyclerView recyclerView) {
+        this.recyclerView = recyclerView;
+    }
+
+    void schedule(IdleTask task) {
+        if (!tasks.contains(task)) {
+            tasks.add(task);
+        }
+        if (!posted) {
+            posted = true;
+            recyclerView.post(this);
+        }
+    }
+
+    boolean isScheduled(IdleTask task) {
+        return tasks.contains(task);
+    }
+
+    void cancel() {
+        tasks.clear();
+        recyclerView.removeCallbacks(this);
+        posted = false;
+        deferredFrames = 0;
+    }
+
+    @Override
+    public void run() {
+        posted = false;
+
+        long deadlineNs = getFrameDeadlineNs();
+        boolean force = deferredFrames >= MAX_DEFERRED_FRAMES;
+
+        boolean ranAny = false;
+        for (int i = 0; i < tasks.size(); i++) {
+            IdleTask task = tasks.get(i);
+            if (!force && nanoTime() + task.getEstimatedCostNs() > deadlineNs) {
+                // Doesn't fit into this frame anymore
+                continue;
+            }
+
+            ranAny = true;
+            if (task.run(deadlineNs)) {
+                tasks.remove(i);
+                i--;
+            }
+        }
+
+        deferredFrames = ranAny ? 0 : deferredFrames + 1;
+
+        if (!tasks.isEmpty() && !posted) {
+            // Continue after the next frame
+            posted = true;
+            ViewCompat.postOnAnimation(recyclerView, mPostAfterFrame);
+        }
+    }
+
+    /**
+     * Returns the time at which the next frame starts, based on the start of the current one
+     */
+    long getFrameDeadlineNs() {
+        return TimeUnit.MILLISECONDS.toNanos(recyclerView.getDrawingTime()) + getFrameIntervalNs();
+    }
+
+    long nanoTime() {
+        return System.nanoTime();
+    }
+
+    private long getFrameIntervalNs() {
+        if (frameIntervalNs == 0) {
+            // Same fallback as the GapWorker, the display is only available while attached
+            float refreshRate = 60.0f;
+            Display display = ViewCompat.getDisplay(recyclerView);
+            if (!recyclerView.isInEditMode() && display != null) {
+                float displayRefreshRate = display.getRefreshRate();
+                if (displayRefreshRate >= 30.0f) {
+                    refreshRate = displayRefreshRate;
+                }
+            }
+            frameIntervalNs = (long) (TimeUnit.SECONDS.toNanos(1) / refreshRate);
+        }
+        return frameIntervalNs;
+    }
+
+    private final Runnable mPostAfterFrame = new Runnable() {
+        @Override
+        public void run() {
+            recyclerView.post(IdleTaskScheduler.this);
+        }
+    };
+
+    interface IdleTask {
+
+        /**
+         * Returns how long the task is expected to run
+         */
+        long getEstimatedCostNs();
+
+        /**
+         * Runs the task, returns true if it's done or false if it should be run again in the next frame
+         */
+        boolean run(long deadlineNs);
+    }
+}
@@ -0,0 +1,168 @@
+package com.ivianuu.recyclerviewhelpers.endlessscroll;
+
+import android.graphics.Rect;
+import android.support.annotation.NonNull;
+import android.support.v4.view.ViewCompat;
+import android.support.v7.widget.RecyclerView;
+import android.view.View;
+
+import java.util.ArrayList;
+
+/**
+ * Admission control for the page loads of multiple {@link EndlessScrollHelper}s, for example
+ * of all lists inside a view pager. At most {@code maxConcurrentLoads} loads are running at a time,
+ * loads of visible lists are started first and loads of offscreen lists are deferred
+ * until no visible list is waiting anymore. Offscreen loads never take the last free slot
+ * unless only one load may run at a time. Lists which weren't laid out yet wait until they are,
+ * their visibility isn't known before.
+ */
+public final class LoadScheduler {
+
+    private static final int VISIBLE = 0;
+    private static final int OFFSCREEN = 1;
+    private static final int UNKNOWN = 2;
+
+    private final int maxConcurrentLoads;
+    private final int maxOffscreenLoads;
+
+    private final ArrayList<EndlessScrollHelper> runningLoads = new ArrayList<>();
+    private final ArrayList<EndlessScrollHelper> offscreenLoads = new ArrayList<>();
+    private final ArrayList<EndlessScrollHelper> pendingLoads = new ArrayList<>();
+
+    private final Rect visibleRect = new Rect();
+
+    public LoadScheduler(int maxConcurrentLoads) {
+        if (maxConcurrentLoads < 1) {
+            throw new IllegalArgumentException("maxConcurrentLoads must be at least 1");
+        }
+        this.maxConcurrentLoads = maxConcurrentLoads;
+        // Keep one slot for visible lists
+        maxOffscreenLoads = Math.max(1, maxConcurrentLoads - 1);
+    }
+
+    /**
+     * Starts pending loads if there are free slots, should be called when the visibility
+     * of the lists changes, for example when the page of a view pager changes
+     */
+    public void dispatchPendingLoads() {
+        // Visible lists first
+        boolean visibleLoadWaiting = false;
+        for (int i = 0; i < pendingLoads.size(); i++) {
+            EndlessScrollHelper helper = pendingLoads.get(i);
+            if (getVisibility(helper) == VISIBLE) {
+                if (runningLoads.size() < maxConcurrentLoads) {
+                    pendingLoads.remove(i);
+                    i--;
+                    startLoad(helper, false);
+                } else {
+                    visibleLoadWaiting = true;
+                }
+            }
+        }
+
+        // Offscreen lists only if no visible list is waiting
+        if (visibleLoadWaiting) {
+            return;
+        }
+        for (int i = 0; i < pendingLoads.size()
+                && runningLoads.size() < maxConcurrentLoads && offscreenLoads.size() < maxOffscreenLoads; i++) {
+            EndlessScrollHelper helper = pendingLoads.get(i);
+            if (getVisibility(helper) == OFFSCREEN) {
+                pendingLoads.remove(i);
+                i--;
+                startLoad(helper, true);
+            }
+        }
+    }
+
+    public int getRunningLoadCount() {
+        return runningLoads.size();
+    }
+
+    public int getPendingLoadCount() {
+        return pendingLoads.size();
+    }
+
+    void requestLoad(EndlessScrollHelper helper) {
+        if (runningLoads.contains(helper) || pendingLoads.contains(helper)) {
+            return;
+        }
+
+        pendingLoads.add(helper);
+        // Check the visibility again once the list got attached or laid out
+        RecyclerView recyclerView = helper.getRecyclerView();
+        recyclerView.addOnLayoutChangeListener(layoutChangeListener);
+        recyclerView.addOnAttachStateChangeListener(attachStateChangeListener);
+        dispatchPendingLoads();
+    }
+
+    boolean isPending(EndlessScrollHelper helper) {
+        return pendingLoads.contains(helper);
+    }
+
+    void onLoadFinished(EndlessScrollHelper helper) {
+        boolean wasRunning = runningLoads.remove(helper);
+        offscreenLoads.remove(helper);
+        if (pendingLoads.remove(helper)) {
+            removeListeners(helper);
+        }
+        if (wasRunning) {
+            dispatchPendingLoads();
+        }
+    }
+
+    private void startLoad(EndlessScrollHelper helper, boolean offscreen) {
+        removeListeners(helper);
+        runningLoads.add(helper);
+        if (offscreen) {
+            offscreenLoads.add(helper);
+        }
+        helper.onLoadAdmitted();
+    }
+
+    private void removeListeners(EndlessScrollHelper helper) {
+        RecyclerView recyclerView = helper.getRecyclerView();
+        recyclerView.removeOnLayoutChangeListener(layoutChangeListener);
+        recyclerView.removeOnAttachStateChangeListener(attachStateChangeListener);
+    }
+
+    private int getVisibility(@NonNull EndlessScrollHelper helper) {
+        RecyclerView recyclerView = helper.getRecyclerView();
+        if (!ViewCompat.isAttachedToWindow(recyclerView) || !ViewCompat.isLaidOut(recyclerView)) {
+            // getGlobalVisibleRect() is false for all lists before their first layout
+            return UNKNOWN;
+        }
+        return recyclerView.getWindowVisibility() == View.VISIBLE
+                && recyclerView.isShown()
+                && recyclerView.getGlobalVisibleRect(visibleRect) ? VISIBLE : OFFSCREEN;
+    }
+
+    private final Runnable dispatchPendingLoadsRunnable = new Runnable() {
+        @Override
+        public void run() {
+            dispatchPendingLoads();
+        }
+    };
+
+    private final View.OnLayoutChangeListener layoutChangeListener = new View.OnLayoutChangeListener() {
+        @Override
+        public void onLayoutChange(View v, int left, int top, int right, int bottom,
+                                   int oldLeft, int oldTop, int oldRight, int oldBottom) {
+            // Loads shouldn't start in the middle of a layout pass
+            v.removeCallbacks(dispatchPendingLoadsRunnable);
+            v.post(dispatchPendingLoadsRunnable);
+        }
+    };
+
+    private final View.OnAttachStateChangeListener attachStateChangeListener = new View.OnAttachStateChangeListener() {
+        @Override
+        public void onViewAttachedToWindow(View v) {
+            v.post(dispatchPendingLoadsRunnable);
+        }
+
+        @Override
+        public void onViewDetachedFromWindow(View v) {
+            v.removeCallbacks(dispatchPendingLoadsRunnable);
+        }
+    };
+}
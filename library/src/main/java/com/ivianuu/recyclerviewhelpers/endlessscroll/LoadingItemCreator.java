@@ -13,11 +13,32 @@ import com.ivianuu.recyclerviewhelpers.R;
 
 public interface LoadingItemCreator {
 
-    LoadingItemCreator DEFAULT = new LoadingItemCreator() {
+    LoadingItemCreator DEFAULT = new DefaultLoadingItemCreator();
+
+    RecyclerView.ViewHolder onCreateViewHolder(ViewGroup parent, int viewType);
+
+    void onBindViewHolder(RecyclerView.ViewHolder holder, int position);
+
+    class DefaultLoadingItemCreator implements LoadingItemCreator, PreInflatableViewHolderCreator {
+
+        private DefaultLoadingItemCreator() {
+
+        }
+
         @Override
         public RecyclerView.ViewHolder onCreateViewHolder(ViewGroup parent, int viewType) {
-            View view = LayoutInflater.from(parent.getContext()).inflate(R.layout.item_loading, parent, false);
-            return new RecyclerView.ViewHolder(view) {
+            View view = LayoutInflater.from(parent.getContext()).inflate(getLayoutRes(viewType), parent, false);
+            return onCreateViewHolder(view, viewType);
+        }
+
+        @Override
+        public int getLayoutRes(int viewType) {
+            return R.layout.item_loading;
+        }
+
+        @Override
+        public RecyclerView.ViewHolder onCreateViewHolder(View itemView, int viewType) {
+            return new RecyclerView.ViewHolder(itemView) {
             };
         }
 
@@ -25,9 +46,5 @@ public interface LoadingItemCreator {
         public void onBindViewHolder(RecyclerView.ViewHolder holder, int position) {
             // No binding for default loading row
         }
-    };
-
-    RecyclerView.ViewHolder onCreateViewHolder(ViewGroup parent, int viewType);
-
-    void onBindViewHolder(RecyclerView.ViewHolder holder, int position);
-}
\ No newline at end of file
+    }
+}
@@ -0,0 +1,96 @@
+package com.ivianuu.recyclerviewhelpers.endlessscroll;
+
+import java.util.Arrays;
+
+/**
+ * Open addressing hash set of primitive longs, so adding an id doesn't allocate a boxed Long
+ */
+final class LongHashSet {
+
+    private static final int MIN_CAPACITY = 16;
+
+    private long[] keys = new long[MIN_CAPACITY];
+    private boolean[] used = new boolean[MIN_CAPACITY];
+    private int size;
+
+    boolean add(long key) {
+        int slot = indexOf(key);
+        if (used[slot]) {
+            return false;
+        }
+
+        keys[slot] = key;
+        used[slot] = true;
+        size++;
+        if (size > keys.length / 4 * 3) {
+            resize(keys.length * 2);
+        }
+        return true;
+    }
+
+    boolean contains(long key) {
+        return used[indexOf(key)];
+    }
+
+    boolean remove(long key) {
+        int slot = indexOf(key);
+        if (!used[slot]) {
+            return false;
+        }
+
+        used[slot] = false;
+        size--;
+
+        // Shift the following keys of the probe sequence back so lookups don't stop at the hole
+        int mask = keys.length - 1;
+        int hole = slot;
+        for (int next = (slot + 1) & mask; used[next]; next = (next + 1) & mask) {
+            int home = hash(keys[next]) & mask;
+            if (((next - home) & mask) >= ((next - hole) & mask)) {
+                keys[hole] = keys[next];
+                used[hole] = true;
+                used[next] = false;
+                hole = next;
+            }
+        }
+        return true;
+    }
+
+    int size() {
+        return size;
+    }
+
+    void clear() {
+        Arrays.fill(used, false);
+        size = 0;
+    }
+
+    private int indexOf(long key) {
+        int mask = keys.length - 1;
+        int slot = hash(key) & mask;
+        while (used[slot] && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void resize(int capacity) {
+        long[] oldKeys = keys;
+        boolean[] oldUsed = used;
+        keys = new long[capacity];
+        used = new boolean[capacity];
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldUsed[i]) {
+                int slot = indexOf(oldKeys[i]);
+                keys[slot] = oldKeys[i];
+                used[slot] = true;
+            }
+        }
+    }
+
+    private static int hash(long key) {
+        // Sequential ids would cluster otherwise
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
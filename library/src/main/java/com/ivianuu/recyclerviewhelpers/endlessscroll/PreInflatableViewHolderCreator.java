@@ -0,0 +1,25 @@
+package com.ivianuu.recyclerviewhelpers.endlessscroll;
+
+import android.support.annotation.LayoutRes;
+import android.support.annotation.NonNull;
+import android.support.v7.widget.RecyclerView;
+import android.view.View;
+
+/**
+ * Can be implemented by a {@link LoadingItemCreator} or by the wrapped adapter to allow the
+ * {@link EndlessScrollHelper} to inflate the item views of a view type off the main thread
+ * and to keep the resulting view holders in the {@link RecyclerView.RecycledViewPool}
+ */
+public interface PreInflatableViewHolderCreator {
+
+    /**
+     * Returns the layout which will be inflated for the {@code viewType}
+     */
+    @LayoutRes
+    int getLayoutRes(int viewType);
+
+    /**
+     * Creates the view holder for an item view which was inflated from {@link #getLayoutRes(int)}
+     */
+    RecyclerView.ViewHolder onCreateViewHolder(@NonNull View itemView, int viewType);
+}
@@ -0,0 +1,35 @@
+package com.ivianuu.recyclerviewhelpers.endlessscroll;
+
+import android.support.annotation.NonNull;
+import android.support.v7.widget.RecyclerView;
+import android.support.v7.widget.StaggeredGridLayoutManager;
+
+/**
+ * {@link VisibleRangeStrategy} for {@link StaggeredGridLayoutManager}s, reuses the positions array between calls
+ */
+public final class StaggeredGridVisibleRangeStrategy implements VisibleRangeStrategy {
+
+    private int[] positions;
+
+    @Override
+    public int findLastVisibleItemPosition(@NonNull RecyclerView.LayoutManager layoutManager) {
+        // https://code.google.com/p/android/issues/detail?id=181461
+        if (layoutManager.getChildCount() == 0) {
+            return RecyclerView.NO_POSITION;
+        }
+
+        StaggeredGridLayoutManager staggeredGridLayoutManager = (StaggeredGridLayoutManager) layoutManager;
+        int spanCount = staggeredGridLayoutManager.getSpanCount();
+        if (positions == null || positions.length != spanCount) {
+            positions = new int[spanCount];
+        }
+
+        // The spans end at different positions, the furthest one is the last visible item
+        staggeredGridLayoutManager.findLastVisibleItemPositions(positions);
+        int lastVisibleItemPosition = RecyclerView.NO_POSITION;
+        for (int position : positions) {
+            lastVisibleItemPosition = Math.max(lastVisibleItemPosition, position);
+        }
+        return lastVisibleItemPosition;
+    }
+}
@@ -0,0 +1,64 @@
+package com.ivianuu.recyclerviewhelpers.endlessscroll;
+
+import android.support.v4.view.AsyncLayoutInflater;
+import android.support.v7.widget.RecyclerView;
+import android.view.View;
+import android.view.ViewGroup;
+
+/**
+ * Inflates item views on the {@link AsyncLayoutInflater} thread and puts the resulting view holders
+ * into the {@link RecyclerView.RecycledViewPool}, so they are ready once the view type first appears
+ */
+class ViewHolderPreInflater {
+
+    private final RecyclerView recyclerView;
+    private final WrapperAdapter wrapperAdapter;
+    private final AsyncLayoutInflater asyncLayoutInflater;
+
+    private boolean cancelled;
+
+    ViewHolderPreInflater(RecyclerView recyclerView, WrapperAdapter wrapperAdapter) {
+        this.recyclerView = recyclerView;
+        this.wrapperAdapter = wrapperAdapter;
+        asyncLayoutInflater = new AsyncLayoutInflater(recyclerView.getContext());
+    }
+
+    void preInflate(PreInflatableViewHolderCreator creator, int viewType, int count) {
+        if (count <= 0) {
+            return;
+        }
+
+        wrapperAdapter.registerPreInflatedViewType(viewType);
+        AsyncLayoutInflater.OnInflateFinishedListener listener = new ViewTypeInflateListener(viewType);
+        int layoutRes = creator.getLayoutRes(viewType);
+        for (int i = 0; i < count; i++) {
+            asyncLayoutInflater.inflate(layoutRes, recyclerView, listener);
+        }
+    }
+
+    void cancel() {
+        cancelled = true;
+    }
+
+    private class ViewTypeInflateListener implements AsyncLayoutInflater.OnInflateFinishedListener {
+
+        private final int viewType;
+
+        private ViewTypeInflateListener(int viewType) {
+            this.viewType = viewType;
+        }
+
+        @Override
+        public void onInflateFinished(View view, int resid, ViewGroup parent) {
+            if (cancelled) {
+                return;
+            }
+
+            // Let the wrapper adapter create the holder so the view type gets assigned,
+            // the pool drops it if it's already full
+            wrapperAdapter.addPreInflatedView(viewType, view);
+            RecyclerView.ViewHolder holder = wrapperAdapter.createViewHolder(recyclerView, viewType);
+            recyclerView.getRecycledViewPool().putRecycledView(holder);
+        }
+    }
+}
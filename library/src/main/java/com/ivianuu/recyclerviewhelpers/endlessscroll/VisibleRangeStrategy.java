@@ -0,0 +1,43 @@
+package com.ivianuu.recyclerviewhelpers.endlessscroll;
+
+import android.support.annotation.NonNull;
+import android.support.v7.widget.LinearLayoutManager;
+import android.support.v7.widget.RecyclerView;
+import android.view.View;
+
+/**
+ * Finds the last visible item of a {@link RecyclerView.LayoutManager}, which is used by the
+ * {@link EndlessScrollHelper} to check whether the end of the list is reached
+ */
+public interface VisibleRangeStrategy {
+
+    /**
+     * For {@link LinearLayoutManager} and its subclasses
+     */
+    VisibleRangeStrategy LINEAR = new VisibleRangeStrategy() {
+        @Override
+        public int findLastVisibleItemPosition(@NonNull RecyclerView.LayoutManager layoutManager) {
+            return ((LinearLayoutManager) layoutManager).findLastVisibleItemPosition();
+        }
+    };
+
+    /**
+     * Works with any layout manager by going through all attached children
+     */
+    VisibleRangeStrategy CHILDREN = new VisibleRangeStrategy() {
+        @Override
+        public int findLastVisibleItemPosition(@NonNull RecyclerView.LayoutManager layoutManager) {
+            int lastVisibleItemPosition = RecyclerView.NO_POSITION;
+            for (int i = 0, childCount = layoutManager.getChildCount(); i < childCount; i++) {
+                View child = layoutManager.getChildAt(i);
+                lastVisibleItemPosition = Math.max(lastVisibleItemPosition, layoutManager.getPosition(child));
+            }
+            return lastVisibleItemPosition;
+        }
+    };
+
+    /**
+     * Returns the adapter position of the last visible item or {@link RecyclerView#NO_POSITION} if there is none
+     */
+    int findLastVisibleItemPosition(@NonNull RecyclerView.LayoutManager layoutManager);
+}
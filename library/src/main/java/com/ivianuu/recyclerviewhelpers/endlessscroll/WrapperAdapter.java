@@ -1,11 +1,17 @@
 package com.ivianuu.recyclerviewhelpers.endlessscroll;
 
 import android.support.v7.widget.RecyclerView;
+import android.util.SparseArray;
+import android.view.View;
 import android.view.ViewGroup;
+import com.ivianuu.recyclerviewhelpers.core.metrics.Metrics;
+import com.ivianuu.recyclerviewhelpers.core.metrics.MetricsListener;
+
+import java.util.ArrayDeque;
 
 class WrapperAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder> {
 
-    private static final int ITEM_VIEW_TYPE_LOADING = Integer.MAX_VALUE - 50; // Magic
+    static final int ITEM_VIEW_TYPE_LOADING = Integer.MAX_VALUE - 50; // Magic
 
     private final RecyclerView.Adapter wrappedAdapter;
 
@@ -13,6 +19,9 @@ class WrapperAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder> {
 
     private boolean showLoadingItem = true;
 
+    // Item views which were inflated ahead of time by view type
+    private final SparseArray<ArrayDeque<View>> preInflatedViews = new SparseArray<>();
+
     WrapperAdapter(RecyclerView.Adapter adapter, LoadingItemCreator creator) {
         wrappedAdapter = adapter;
         loadingItemCreator = creator;
@@ -20,6 +29,16 @@ class WrapperAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder> {
 
     @Override
     public RecyclerView.ViewHolder onCreateViewHolder(ViewGroup parent, int viewType) {
+        ArrayDeque<View> views = preInflatedViews.get(viewType);
+        if (views != null && !views.isEmpty()) {
+            View view = views.poll();
+            if (viewType == ITEM_VIEW_TYPE_LOADING) {
+                return ((PreInflatableViewHolderCreator) loadingItemCreator).onCreateViewHolder(view, viewType);
+            } else {
+                return ((PreInflatableViewHolderCreator) wrappedAdapter).onCreateViewHolder(view, viewType);
+            }
+        }
+
         if (viewType == ITEM_VIEW_TYPE_LOADING) {
             return loadingItemCreator.onCreateViewHolder(parent, viewType);
         } else {
@@ -31,6 +50,12 @@ class WrapperAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder> {
     public void onBindViewHolder(RecyclerView.ViewHolder holder, int position) {
         if (isLoadingItem(position)) {
             loadingItemCreator.onBindViewHolder(holder, position);
+
+            // The loading row only gets bound once the user caught up with the loaded items
+            MetricsListener metricsListener = Metrics.getListener();
+            if (metricsListener != null) {
+                metricsListener.onLoadingItemExposed(wrappedAdapter.getItemCount());
+            }
         } else {
             wrappedAdapter.onBindViewHolder(holder, position);
         }
@@ -57,6 +82,19 @@ class WrapperAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder> {
         wrappedAdapter.setHasStableIds(hasStableIds);
     }
 
+    void registerPreInflatedViewType(int viewType) {
+        if (preInflatedViews.get(viewType) == null) {
+            preInflatedViews.put(viewType, new ArrayDeque<View>());
+        }
+    }
+
+    /**
+     * Queues the pre inflated view to be used by the next {@link #onCreateViewHolder(ViewGroup, int)} call
+     */
+    void addPreInflatedView(int viewType, View view) {
+        preInflatedViews.get(viewType).add(view);
+    }
+
     RecyclerView.Adapter getWrappedAdapter() {
         return wrappedAdapter;
     }
@@ -68,7 +106,32 @@ class WrapperAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder> {
     void showLoadingItem(boolean showLoadingItem) {
         if (this.showLoadingItem != showLoadingItem) {
             this.showLoadingItem = showLoadingItem;
-            notifyDataSetChanged();
+            // The loading row is always the last one, so only that position changes
+            int loadingItemPosition = wrappedAdapter.getItemCount();
+            if (showLoadingItem) {
+                notifyItemInserted(loadingItemPosition);
+            } else {
+                notifyItemRemoved(loadingItemPosition);
+            }
+        }
+    }
+
+    /**
+     * Forwards a range move of the wrapped adapter, the {@link RecyclerView.Adapter} only supports single item moves
+     * so the range is dispatched as {@code itemCount} consecutive moves.
+     * Like the undo move operation and the header index, {@code toPosition} is where the first item
+     * of the range ends up, in both directions.
+     */
+    void notifyItemRangeMoved(int fromPosition, int toPosition, int itemCount) {
+        if (fromPosition < toPosition) {
+            // Moving the first item of the range behind the last target slot shifts the next one into its place
+            for (int i = 0; i < itemCount; i++) {
+                notifyItemMoved(fromPosition, toPosition + itemCount - 1);
+            }
+        } else {
+            for (int i = 0; i < itemCount; i++) {
+                notifyItemMoved(fromPosition + i, toPosition + i);
+            }
         }
     }
 
@@ -77,6 +140,6 @@ class WrapperAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder> {
     }
 
     private int getLoadingItemPosition() {
-        return showLoadingItem ? getItemCount() - 1 : -1;
+        return showLoadingItem ? wrappedAdapter.getItemCount() : -1;
     }
 }
\ No newline at end of file
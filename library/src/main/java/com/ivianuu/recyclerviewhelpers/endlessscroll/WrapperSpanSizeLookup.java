@@ -1,31 +1,178 @@
 package com.ivianuu.recyclerviewhelpers.endlessscroll;
 
 import android.support.v7.widget.GridLayoutManager;
+import android.support.v7.widget.RecyclerView;
 
+import java.util.Arrays;
+
+/**
+ * Returns the span of the loading row and delegates all other positions to the wrapped {@link GridLayoutManager.SpanSizeLookup}.
+ *
+ * Span index caching is always enabled, span indices and span group indices are cached for a contiguous range
+ * of positions and the adapter observer only invalidates the positions after a change. The {@link GridLayoutManager}
+ * invalidates the whole cache of the base class on every adapter change, which leaves our range intact,
+ * so {@link #invalidateAllSpanIndices()} has to be used if the span sizes change without an adapter notification.
+ */
 class WrapperSpanSizeLookup extends GridLayoutManager.SpanSizeLookup {
 
     private final GridLayoutManager.SpanSizeLookup wrappedSpanSizeLookup;
     private final int loadingItemSpan;
     private final WrapperAdapter wrapperAdapter;
 
+    // Position of the loading row or NO_POSITION, updated by the adapter observer
+    private int loadingItemPosition;
+
+    // Span indices and span group indices of the positions [0, cachedCount) for cachedSpanCount
+    private int[] spanIndexCache = new int[0];
+    private int[] spanGroupIndexCache = new int[0];
+    private int cachedCount;
+    private int cachedSpanCount = -1;
+
     WrapperSpanSizeLookup(GridLayoutManager.SpanSizeLookup wrappedSpanSizeLookup,
                           int loadingItemSpan,
                           WrapperAdapter wrapperAdapter) {
         this.wrappedSpanSizeLookup = wrappedSpanSizeLookup;
         this.loadingItemSpan = loadingItemSpan;
         this.wrapperAdapter = wrapperAdapter;
+
+        setSpanIndexCacheEnabled(true);
+        updateLoadingItemPosition();
+        wrapperAdapter.registerAdapterDataObserver(cacheInvalidationObserver);
     }
 
     @Override
     public int getSpanSize(int position) {
-        if (wrapperAdapter.isLoadingItem(position)) {
+        if (position == loadingItemPosition) {
             return loadingItemSpan;
         } else {
             return wrappedSpanSizeLookup.getSpanSize(position);
         }
     }
 
+    @Override
+    public int getSpanIndex(int position, int spanCount) {
+        if (!isSpanIndexCacheEnabled()) {
+            return super.getSpanIndex(position, spanCount);
+        }
+        ensureCached(position, spanCount);
+        return spanIndexCache[position];
+    }
+
+    @Override
+    public int getSpanGroupIndex(int adapterPosition, int spanCount) {
+        if (!isSpanIndexCacheEnabled()) {
+            return super.getSpanGroupIndex(adapterPosition, spanCount);
+        }
+        ensureCached(adapterPosition, spanCount);
+        return spanGroupIndexCache[adapterPosition];
+    }
+
+    @Override
+    public void setSpanIndexCacheEnabled(boolean cacheSpanIndices) {
+        super.setSpanIndexCacheEnabled(cacheSpanIndices);
+        cachedCount = 0;
+    }
+
+    void invalidateAllSpanIndices() {
+        super.invalidateSpanIndexCache();
+        cachedCount = 0;
+    }
+
+    void release() {
+        wrapperAdapter.unregisterAdapterDataObserver(cacheInvalidationObserver);
+    }
+
     GridLayoutManager.SpanSizeLookup getWrappedSpanSizeLookup() {
         return wrappedSpanSizeLookup;
     }
+
+    /**
+     * Computes the indices of all positions up to {@code position} which are not cached yet,
+     * continuing from the last cached one
+     */
+    private void ensureCached(int position, int spanCount) {
+        if (spanCount != cachedSpanCount) {
+            cachedSpanCount = spanCount;
+            cachedCount = 0;
+        }
+        if (position < cachedCount) {
+            return;
+        }
+
+        if (position >= spanIndexCache.length) {
+            int capacity = Math.max(position + 1, spanIndexCache.length * 2);
+            spanIndexCache = Arrays.copyOf(spanIndexCache, capacity);
+            spanGroupIndexCache = Arrays.copyOf(spanGroupIndexCache, capacity);
+        }
+
+        int spanEnd;
+        int spanGroupIndex;
+        if (cachedCount == 0) {
+            spanEnd = 0;
+            spanGroupIndex = 0;
+        } else {
+            int last = cachedCount - 1;
+            spanEnd = spanIndexCache[last] + getSpanSize(last);
+            spanGroupIndex = spanGroupIndexCache[last];
+        }
+
+        for (int i = cachedCount; i <= position; i++) {
+            int spanSize = getSpanSize(i);
+            int spanIndex;
+            if (i > 0 && spanEnd + spanSize > spanCount) {
+                // Doesn't fit into the current row anymore
+                spanIndex = 0;
+                spanGroupIndex++;
+            } else {
+                spanIndex = spanEnd;
+            }
+            spanIndexCache[i] = spanIndex;
+            spanGroupIndexCache[i] = spanGroupIndex;
+            spanEnd = spanIndex + spanSize;
+        }
+
+        cachedCount = position + 1;
+    }
+
+    private void invalidateFrom(int position) {
+        cachedCount = Math.min(cachedCount, position);
+        updateLoadingItemPosition();
+    }
+
+    private void updateLoadingItemPosition() {
+        loadingItemPosition = wrapperAdapter.isShowingLoadingItem()
+                ? wrapperAdapter.getItemCount() - 1 : RecyclerView.NO_POSITION;
+    }
+
+    private final RecyclerView.AdapterDataObserver cacheInvalidationObserver = new RecyclerView.AdapterDataObserver() {
+        @Override
+        public void onChanged() {
+            invalidateFrom(0);
+        }
+
+        @Override
+        public void onItemRangeChanged(int positionStart, int itemCount) {
+            invalidateFrom(positionStart);
+        }
+
+        @Override
+        public void onItemRangeChanged(int positionStart, int itemCount, Object payload) {
+            invalidateFrom(positionStart);
+        }
+
+        @Override
+        public void onItemRangeInserted(int positionStart, int itemCount) {
+            invalidateFrom(positionStart);
+        }
+
+        @Override
+        public void onItemRangeRemoved(int positionStart, int itemCount) {
+            invalidateFrom(positionStart);
+        }
+
+        @Override
+        public void onItemRangeMoved(int fromPosition, int toPosition, int itemCount) {
+            invalidateFrom(Math.min(fromPosition, toPosition));
+        }
+    };
 }
@@ -0,0 +1,30 @@
+package com.ivianuu.recyclerviewhelpers.metrics;
+
+import android.support.v4.os.TraceCompat;
+import com.ivianuu.recyclerviewhelpers.core.metrics.Metrics;
+
+/**
+ * Toggles the {@link TraceCompat} sections around the hot paths of all helpers
+ */
+public final class Tracing {
+
+    private static final Metrics.Tracer TRACE_COMPAT_TRACER = new Metrics.Tracer() {
+        @Override
+        public void beginSection(String sectionName) {
+            TraceCompat.beginSection(sectionName);
+        }
+
+        @Override
+        public void endSection() {
+            TraceCompat.endSection();
+        }
+    };
+
+    private Tracing() {
+        // no instances
+    }
+
+    public static void setEnabled(boolean enabled) {
+        Metrics.setTracer(enabled ? TRACE_COMPAT_TRACER : null);
+    }
+}
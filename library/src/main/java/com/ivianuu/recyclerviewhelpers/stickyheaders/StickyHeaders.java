@@ -2,6 +2,7 @@ package com.ivianuu.recyclerviewhelpers.stickyheaders;
 
 import android.support.v7.widget.RecyclerView;
 import android.view.View;
+import com.ivianuu.recyclerviewhelpers.core.stickyheaders.HeaderIndex;
 
 /**
  * Adds sticky headers capabilities to the {@link RecyclerView.Adapter}. Should return {@code true} for all
@@ -26,4 +27,15 @@ public interface StickyHeaders {
          */
         void teardownStickyHeaderView(View stickyHeader);
     }
+
+    interface HeaderIndexProvider {
+        /**
+         * Returns the header positions of the current items or {@code null} if they aren't known.
+         *
+         * The layout manager copies them instead of going through all items when the data set changed,
+         * and instead of applying the ranges one by one while they're dispatched. An index is copied once,
+         * so a new instance has to be returned whenever the items change.
+         */
+        HeaderIndex getHeaderIndex();
+    }
 }
\ No newline at end of file
@@ -11,9 +11,9 @@ import android.support.v7.widget.LinearLayoutManager;
 import android.support.v7.widget.RecyclerView;
 import android.view.View;
 import android.view.ViewTreeObserver;
-
-import java.util.ArrayList;
-import java.util.List;
+import com.ivianuu.recyclerviewhelpers.core.metrics.Metrics;
+import com.ivianuu.recyclerviewhelpers.core.metrics.MetricsListener;
+import com.ivianuu.recyclerviewhelpers.core.stickyheaders.HeaderIndex;
 
 /**
  * Adds sticky headers capabilities to your {@link RecyclerView.Adapter}. It must implement {@link StickyHeaders} to
@@ -27,7 +27,10 @@ public class StickyHeadersLinearLayoutManager<T extends RecyclerView.Adapter & S
     private float translationY;
 
     // Header positions for the currently displayed list and their observer.
-    private List<Integer> headerPositions = new ArrayList<>(0);
+    private final HeaderIndex headerPositions = new HeaderIndex();
+    // Index of the HeaderIndexProvider which headerPositions was copied from, it already includes
+    // all ranges which are dispatched for the same items
+    private HeaderIndex adoptedHeaderPositions;
     private RecyclerView.AdapterDataObserver headerPositionsObserver = new HeaderPositionsAdapterDataObserver();
 
     // Sticky header's ViewHolder and dirty state.
@@ -93,6 +96,7 @@ public class StickyHeadersLinearLayoutManager<T extends RecyclerView.Adapter & S
         } else {
             this.adapter = null;
             headerPositions.clear();
+            adoptedHeaderPositions = null;
         }
     }
 
@@ -280,6 +284,15 @@ public class StickyHeadersLinearLayoutManager<T extends RecyclerView.Adapter & S
      * Updates the sticky header state (creation, binding, display), to be called whenever there's a layout or scroll
      */
     private void updateStickyHeader(RecyclerView.Recycler recycler, boolean layout) {
+        Metrics.Tracer tracer = Metrics.beginSection("StickyHeaders.update");
+        try {
+            updateStickyHeaderInternal(recycler, layout);
+        } finally {
+            Metrics.endSection(tracer);
+        }
+    }
+
+    private void updateStickyHeaderInternal(RecyclerView.Recycler recycler, boolean layout) {
         int headerCount = headerPositions.size();
         int childCount = getChildCount();
         if (headerCount > 0 && childCount > 0) {
@@ -368,6 +381,11 @@ public class StickyHeadersLinearLayoutManager<T extends RecyclerView.Adapter & S
 
         this.stickyHeader = stickyHeader;
         stickyHeaderPosition = position;
+
+        MetricsListener metricsListener = Metrics.getListener();
+        if (metricsListener != null) {
+            metricsListener.onStickyHeaderCreated(position);
+        }
     }
 
     /**
@@ -379,6 +397,11 @@ public class StickyHeadersLinearLayoutManager<T extends RecyclerView.Adapter & S
         stickyHeaderPosition = position;
         measureAndLayout(stickyHeader);
 
+        MetricsListener metricsListener = Metrics.getListener();
+        if (metricsListener != null) {
+            metricsListener.onStickyHeaderBound(position);
+        }
+
         // If we have a pending scroll wait until the end of layout and scroll again.
         if (pendingScrollPosition != RecyclerView.NO_POSITION) {
             final ViewTreeObserver vto = stickyHeader.getViewTreeObserver();
@@ -440,6 +463,11 @@ public class StickyHeadersLinearLayoutManager<T extends RecyclerView.Adapter & S
         if (recycler != null) {
             recycler.recycleView(stickyHeader);
         }
+
+        MetricsListener metricsListener = Metrics.getListener();
+        if (metricsListener != null) {
+            metricsListener.onStickyHeaderScrapped();
+        }
     }
 
     /**
@@ -534,57 +562,61 @@ public class StickyHeadersLinearLayoutManager<T extends RecyclerView.Adapter & S
      * Finds the header index of {@code position} in {@code headerPositions}.
      */
     private int findHeaderIndex(int position) {
-        int low = 0;
-        int high = headerPositions.size() - 1;
-        while (low <= high) {
-            int middle = (low + high) / 2;
-            if (headerPositions.get(middle) > position) {
-                high = middle - 1;
-            } else if (headerPositions.get(middle) < position) {
-                low = middle + 1;
-            } else {
-                return middle;
-            }
-        }
-        return -1;
+        return headerPositions.findHeaderIndex(position);
     }
 
     /**
      * Finds the header index of {@code position} or the one before it in {@code headerPositions}.
      */
     private int findHeaderIndexOrBefore(int position) {
-        int low = 0;
-        int high = headerPositions.size() - 1;
-        while (low <= high) {
-            int middle = (low + high) / 2;
-            if (headerPositions.get(middle) > position) {
-                high = middle - 1;
-            } else if (middle < headerPositions.size() - 1 && headerPositions.get(middle + 1) <= position) {
-                low = middle + 1;
-            } else {
-                return middle;
-            }
+        return headerPositions.findHeaderIndexOrBefore(position);
+    }
+
+    private void rebuildHeaderPositions() {
+        HeaderIndex precomputed = getProvidedHeaderPositions();
+        adoptedHeaderPositions = precomputed;
+        if (precomputed != null) {
+            // Copying isn't a rebuild, so it's not reported
+            headerPositions.copyFrom(precomputed);
+            return;
+        }
+
+        MetricsListener metricsListener = Metrics.getListener();
+        long start = metricsListener != null ? System.nanoTime() : 0;
+        Metrics.Tracer tracer = Metrics.beginSection("StickyHeaders.rebuildIndex");
+        try {
+            headerPositions.rebuild(adapter.getItemCount(), headerPredicate);
+        } finally {
+            Metrics.endSection(tracer);
+        }
+        if (metricsListener != null) {
+            metricsListener.onHeaderIndexRebuilt(adapter.getItemCount(), headerPositions.size(),
+                    System.nanoTime() - start);
         }
-        return -1;
     }
 
     /**
-     * Finds the header index of {@code position} or the one next to it in {@code headerPositions}.
+     * Copies the header positions of the adapter if it knows them for its current items,
+     * the ranges of a dispatch don't have to be applied one by one then
+     *
+     * @return whether {@code headerPositions} is up to date
      */
-    private int findHeaderIndexOrNext(int position) {
-        int low = 0;
-        int high = headerPositions.size() - 1;
-        while (low <= high) {
-            int middle = (low + high) / 2;
-            if (middle > 0 && headerPositions.get(middle - 1) >= position) {
-                high = middle - 1;
-            } else if (headerPositions.get(middle) < position) {
-                low = middle + 1;
-            } else {
-                return middle;
-            }
+    private boolean adoptProvidedHeaderPositions() {
+        HeaderIndex provided = getProvidedHeaderPositions();
+        if (provided == null) {
+            adoptedHeaderPositions = null;
+            return false;
         }
-        return -1;
+        if (provided != adoptedHeaderPositions) {
+            headerPositions.copyFrom(provided);
+            adoptedHeaderPositions = provided;
+        }
+        return true;
+    }
+
+    private HeaderIndex getProvidedHeaderPositions() {
+        return adapter instanceof StickyHeaders.HeaderIndexProvider
+                ? ((StickyHeaders.HeaderIndexProvider) adapter).getHeaderIndex() : null;
     }
 
     private void setPendingScroll(int position, int offset) {
@@ -601,13 +633,7 @@ public class StickyHeadersLinearLayoutManager<T extends RecyclerView.Adapter & S
         @Override
         public void onChanged() {
             // There's no hint at what changed, so go through the adapter.
-            headerPositions.clear();
-            int itemCount = adapter.getItemCount();
-            for (int i = 0; i < itemCount; i++) {
-                if (adapter.isStickyHeader(i)) {
-                    headerPositions.add(i);
-                }
-            }
+            rebuildHeaderPositions();
 
             // Remove sticky header immediately if the entry it represents has been removed. A layout will follow.
             if (stickyHeader != null && !headerPositions.contains(stickyHeaderPosition)) {
@@ -617,99 +643,53 @@ public class StickyHeadersLinearLayoutManager<T extends RecyclerView.Adapter & S
 
         @Override
         public void onItemRangeInserted(int positionStart, int itemCount) {
-            // Shift headers below down.
-            int headerCount = headerPositions.size();
-            if (headerCount > 0) {
-                for (int i = findHeaderIndexOrNext(positionStart); i != -1 && i < headerCount; i++) {
-                    headerPositions.set(i, headerPositions.get(i) + itemCount);
-                }
-            }
-
-            // Add new headers.
-            for (int i = positionStart; i < positionStart + itemCount; i++) {
-                if (adapter.isStickyHeader(i)) {
-                    int headerIndex = findHeaderIndexOrNext(i);
-                    if (headerIndex != -1) {
-                        headerPositions.add(headerIndex, i);
-                    } else {
-                        headerPositions.add(i);
-                    }
-                }
+            if (!adoptProvidedHeaderPositions()) {
+                headerPositions.onItemRangeInserted(positionStart, itemCount, headerPredicate);
             }
         }
 
         @Override
         public void onItemRangeRemoved(int positionStart, int itemCount) {
-            int headerCount = headerPositions.size();
-            if (headerCount > 0) {
-                // Remove headers.
-                for (int i = positionStart + itemCount - 1; i >= positionStart; i--) {
-                    int index = findHeaderIndex(i);
-                    if (index != -1) {
-                        headerPositions.remove(index);
-                        headerCount--;
-                    }
-                }
-
-                // Remove sticky header immediately if the entry it represents has been removed. A layout will follow.
-                if (stickyHeader != null && !headerPositions.contains(stickyHeaderPosition)) {
-                    scrapStickyHeader(null);
-                }
+            if (!adoptProvidedHeaderPositions()) {
+                headerPositions.onItemRangeRemoved(positionStart, itemCount);
+            }
 
-                // Shift headers below up.
-                for (int i = findHeaderIndexOrNext(positionStart + itemCount); i != -1 && i < headerCount; i++) {
-                    headerPositions.set(i, headerPositions.get(i) - itemCount);
-                }
+            // Remove sticky header immediately if the entry it represents has been removed. A layout will follow.
+            if (stickyHeader != null && stickyHeaderPosition >= positionStart
+                    && stickyHeaderPosition < positionStart + itemCount) {
+                scrapStickyHeader(null);
             }
         }
 
         @Override
         public void onItemRangeMoved(int fromPosition, int toPosition, int itemCount) {
-            // Shift moved headers by toPosition - fromPosition.
-            // Shift headers in-between by -itemCount (reverse if upwards).
-            int headerCount = headerPositions.size();
-            if (headerCount > 0) {
-                if (fromPosition < toPosition) {
-                    for (int i = findHeaderIndexOrNext(fromPosition); i != -1 && i < headerCount; i++) {
-                        int headerPos = headerPositions.get(i);
-                        if (headerPos >= fromPosition && headerPos < fromPosition + itemCount) {
-                            headerPositions.set(i, headerPos - (toPosition - fromPosition));
-                            sortHeaderAtIndex(i);
-                        } else if (headerPos >= fromPosition + itemCount && headerPos <= toPosition) {
-                            headerPositions.set(i, headerPos - itemCount);
-                            sortHeaderAtIndex(i);
-                        } else {
-                            break;
-                        }
-                    }
-                } else {
-                    for (int i = findHeaderIndexOrNext(toPosition); i != -1 && i < headerCount; i++) {
-                        int headerPos = headerPositions.get(i);
-                        if (headerPos >= fromPosition && headerPos < fromPosition + itemCount) {
-                            headerPositions.set(i, headerPos + (toPosition - fromPosition));
-                            sortHeaderAtIndex(i);
-                        } else if (headerPos >= toPosition && headerPos <= fromPosition) {
-                            headerPositions.set(i, headerPos + itemCount);
-                            sortHeaderAtIndex(i);
-                        } else {
-                            break;
-                        }
-                    }
-                }
+            if (!adoptProvidedHeaderPositions()) {
+                headerPositions.onItemRangeMoved(fromPosition, toPosition, itemCount);
             }
         }
 
-        private void sortHeaderAtIndex(int index) {
-            int headerPos = headerPositions.remove(index);
-            int headerIndex = findHeaderIndexOrNext(headerPos);
-            if (headerIndex != -1) {
-                headerPositions.add(headerIndex, headerPos);
-            } else {
-                headerPositions.add(headerPos);
+        @Override
+        public void onItemRangeChanged(int positionStart, int itemCount) {
+            if (!adoptProvidedHeaderPositions()) {
+                headerPositions.onItemRangeChanged(positionStart, itemCount, headerPredicate);
+            }
+
+            // Remove sticky header immediately if the entry it represents isn't a header anymore. A layout will follow.
+            if (stickyHeader != null && stickyHeaderPosition >= positionStart
+                    && stickyHeaderPosition < positionStart + itemCount
+                    && !headerPositions.contains(stickyHeaderPosition)) {
+                scrapStickyHeader(null);
             }
         }
     }
 
+    private final HeaderIndex.HeaderPredicate headerPredicate = new HeaderIndex.HeaderPredicate() {
+        @Override
+        public boolean isHeader(int position) {
+            return adapter.isStickyHeader(position);
+        }
+    };
+
     public static class SavedState implements Parcelable {
         private Parcelable superState;
         private int pendingScrollPosition;
@@ -0,0 +1,24 @@
+package com.ivianuu.recyclerviewhelpers.undo;
+
+import android.os.Handler;
+import android.os.Looper;
+import com.ivianuu.recyclerviewhelpers.core.undo.UndoEngine;
+import com.ivianuu.recyclerviewhelpers.core.undo.UndoTimer;
+
+/**
+ * Runs the delayed work of an {@link UndoEngine} on the main thread
+ */
+class HandlerUndoTimer implements UndoTimer {
+
+    private final Handler handler = new Handler(Looper.getMainLooper());
+
+    @Override
+    public void postDelayed(Runnable runnable, long delayMillis) {
+        handler.postDelayed(runnable, delayMillis);
+    }
+
+    @Override
+    public void cancel(Runnable runnable) {
+        handler.removeCallbacks(runnable);
+    }
+}
@@ -0,0 +1,78 @@
+package com.ivianuu.recyclerviewhelpers.undo;
+
+import android.graphics.Color;
+import android.support.design.widget.Snackbar;
+import android.view.View;
+import com.ivianuu.recyclerviewhelpers.core.undo.UndoEngine;
+import com.ivianuu.recyclerviewhelpers.core.undo.UndoPresenter;
+
+/**
+ * Shows a {@link Snackbar} with an undo action, the snackbar is created the first time it gets shown.
+ * Dismissing the snackbar doesn't commit anything, the commit timeout of the engine does.
+ * The engine shows the presenter whenever it restarts its commit timeout and showing the snackbar again
+ * restarts its duration as well, so both time out together
+ */
+class SnackbarUndoPresenter implements UndoPresenter {
+
+    private final View snackbarContainer;
+    private final String snackbarText;
+    private final String snackbarActionText;
+    private final int snackbarDuration;
+    private final int snackbarActionTextColor;
+
+    private Snackbar snackbar;
+    private UndoEngine<?> engine;
+
+    SnackbarUndoPresenter(View snackbarContainer, String snackbarText, String snackbarActionText,
+                          int snackbarDuration, int snackbarActionTextColor) {
+        this.snackbarContainer = snackbarContainer;
+        this.snackbarText = snackbarText;
+        this.snackbarActionText = snackbarActionText;
+        this.snackbarDuration = snackbarDuration;
+        this.snackbarActionTextColor = snackbarActionTextColor;
+    }
+
+    @Override
+    public void show(UndoEngine<?> engine) {
+        this.engine = engine;
+        if (snackbar == null) {
+            snackbar = createSnackbar();
+        }
+        // The SnackbarManager restarts the timeout if the snackbar is already shown
+        snackbar.show();
+    }
+
+    @Override
+    public void dismiss() {
+        if (snackbar != null) {
+            snackbar.dismiss();
+        }
+    }
+
+    private Snackbar createSnackbar() {
+        Snackbar snackbar = Snackbar.make(snackbarContainer, snackbarText, snackbarDuration);
+
+        snackbar.setAction(snackbarActionText, new View.OnClickListener() {
+            @Override
+            public void onClick(View v) {
+                engine.undo();
+                // Offer to undo the next operation
+                if (engine.getUndoableOperationCount() > 0) {
+                    snackbarContainer.post(new Runnable() {
+                        @Override
+                        public void run() {
+                            if (engine.getUndoableOperationCount() > 0) show(engine);
+                        }
+                    });
+                }
+            }
+        });
+
+        // apply the action text color
+        if (snackbarActionTextColor != Color.TRANSPARENT) {
+            snackbar.setActionTextColor(snackbarActionTextColor);
+        }
+
+        return snackbar;
+    }
+}
@@ -3,100 +3,113 @@ package com.ivianuu.recyclerviewhelpers.undo;
 import android.graphics.Color;
 import android.support.design.widget.Snackbar;
 import android.support.v7.widget.RecyclerView;
-import android.util.Log;
+import android.support.v7.widget.helper.ItemTouchHelper;
 import android.view.View;
+import com.ivianuu.recyclerviewhelpers.core.undo.ListUpdateListener;
+import com.ivianuu.recyclerviewhelpers.core.undo.UndoEngine;
+import com.ivianuu.recyclerviewhelpers.core.undo.UndoJournal;
+import com.ivianuu.recyclerviewhelpers.core.undo.UndoOperation;
+import com.ivianuu.recyclerviewhelpers.core.undo.UndoPresenter;
 
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.Comparator;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Set;
-import java.util.SortedSet;
-import java.util.TreeSet;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
 
 /**
  * @author Manuel Wrage (IVIanuu)
  */
 public class UndoHelper<A extends RecyclerView.Adapter & UndoHelper.UndoAdapter<M>, M> {
 
-    private static final int ACTION_REMOVE = 2;
+    // How long the SnackbarManager shows snackbars with Snackbar.LENGTH_SHORT and Snackbar.LENGTH_LONG
+    private static final long SHORT_DURATION_MILLIS = 1500;
+    private static final long LONG_DURATION_MILLIS = 2750;
 
-    private A adapter;
+    // The commit timeout follows the snackbar duration unless it's set
+    private static final long COMMIT_TIMEOUT_FROM_SNACKBAR_DURATION = -1;
 
-    private UndoListener<M> mUndoListener;
+    private final A adapter;
 
-    // Snackbar
-    private Snackbar snackbar;
-    private View snackbarContainer;
-    private String snackbarText;
-    private String snackbarActionText;
-    private int snackbarDuration;
-    private int snackbarActionTextColor;
-
-    private History history = null;
+    private final UndoEngine<M> engine;
 
     private UndoHelper(Builder<A, M> builder) {
         adapter = builder.adapter;
-        mUndoListener = builder.undoListener;
-
-        snackbarContainer = builder.snackbarContainer;
-        snackbarText = builder.snackbarText;
-
-        // use default text
-        snackbarActionText = builder.snackbarActionText;
-
-        // use default action text
-
-        snackbarDuration = builder.snackbarDuration;
-        snackbarActionTextColor = builder.snackbarActionTextColor;
-
-        snackbar = Snackbar.make(snackbarContainer, snackbarText, snackbarDuration)
-                .addCallback(new Snackbar.Callback() {
-                    @Override
-                    public void onDismissed(Snackbar snackbar, int event) {
-                        super.onDismissed(snackbar, event);
-                        switch (event) {
-                            case Snackbar.Callback.DISMISS_EVENT_ACTION:
-                                //we can ignore it
-                                break;
-                            case Snackbar.Callback.DISMISS_EVENT_TIMEOUT:
-                                notifyCommit();
-                                break;
-                            case Snackbar.Callback.DISMISS_EVENT_CONSECUTIVE:
-                                notifyCommit();
-                                break;
-                            case Snackbar.Callback.DISMISS_EVENT_SWIPE:
-                                notifyCommit();
-                                break;
-                        }
-                    }
-
-                    @Override
-                    public void onShown(Snackbar snackbar) {
-                        super.onShown(snackbar);
-                        doChange();
-                    }
-                });
-
-        snackbar.setAction(snackbarActionText, new View.OnClickListener() {
-            @Override
-            public void onClick(View v) {
-                undoChange();
-            }
-        });
 
-        // apply the action text color
-        if (snackbarActionTextColor != Color.TRANSPARENT) {
-            snackbar.setActionTextColor(snackbarActionTextColor);
+        UndoPresenter presenter = builder.presenter;
+        if (presenter == null) {
+            presenter = new SnackbarUndoPresenter(builder.snackbarContainer, builder.snackbarText,
+                    builder.snackbarActionText, builder.snackbarDuration, builder.snackbarActionTextColor);
+        }
+
+        UndoEngine.Builder<M> engineBuilder = new UndoEngine.Builder<M>()
+                .withAdapter(adapter, adapterUpdateListener)
+                .withUndoListener(builder.undoListener)
+                .withCommitListener(builder.commitListener)
+                .withStableIds(builder.idProvider)
+                .withPresenter(presenter)
+                .withTimer(new HandlerUndoTimer())
+                .withCommitTimeout(getCommitTimeoutMillis(builder))
+                .withMaxUndoOperations(builder.maxUndoOperations)
+                .withMaxUndoItems(builder.maxUndoItems)
+                .withMaxUndoBytes(builder.maxUndoBytes, builder.itemSizeEstimator)
+                .withCommitBatchWindow(builder.commitBatchWindowMillis);
+        if (builder.commitExecutor != null) {
+            engineBuilder.withCommitExecutor(builder.commitExecutor);
         }
+        if (builder.backgroundExecutor != null) {
+            engineBuilder.withBackgroundUpdates(builder.backgroundExecutor, builder.backgroundThreshold);
+        }
+        if (builder.journal != null) {
+            engineBuilder.withJournal(builder.journal, builder.journalRecoveryPolicy);
+        }
+        engine = engineBuilder.build();
+    }
+
+    /**
+     * Returns the engine which keeps the pending operations
+     */
+    public UndoEngine<M> getEngine() {
+        return engine;
+    }
+
+    /**
+     * Attaches an {@link ItemTouchHelper} which removes swiped and moves dragged items through this helper
+     * @see UndoItemTouchCallback
+     */
+    public ItemTouchHelper attachToRecyclerView(RecyclerView recyclerView, int dragDirs, int swipeDirs) {
+        ItemTouchHelper itemTouchHelper = new ItemTouchHelper(new UndoItemTouchCallback(this, dragDirs, swipeDirs));
+        itemTouchHelper.attachToRecyclerView(recyclerView);
+        return itemTouchHelper;
     }
 
     /**
      * Cancels the current operation
      */
     public void cancel() {
-        snackbar.dismiss();
-        history = null;
+        engine.cancel();
+    }
+
+    /**
+     * Reverts the most recent pending operation
+     * @return whether there was an operation to undo
+     */
+    public boolean undo() {
+        return engine.undo();
+    }
+
+    /**
+     * Commits all pending operations, the oldest first
+     */
+    public void commitAll() {
+        engine.commitAll();
+    }
+
+    /**
+     * Returns the number of operations which can be undone
+     */
+    public int getUndoableOperationCount() {
+        return engine.getUndoableOperationCount();
     }
 
     /**
@@ -104,10 +117,10 @@ public class UndoHelper<A extends RecyclerView.Adapter & UndoHelper.UndoAdapter<
      * @param positions
      */
     public void remove(List<Integer> positions) {
-        Set<Integer> positionsSet = new TreeSet<>();
-        for (Integer position : positions)
-            positionsSet.add(position);
-        remove(positionsSet);
+        int[] positionsArray = new int[positions.size()];
+        for (int i = 0; i < positionsArray.length; i++)
+            positionsArray[i] = positions.get(i);
+        engine.remove(sortDistinct(positionsArray));
     }
 
     /**
@@ -115,10 +128,7 @@ public class UndoHelper<A extends RecyclerView.Adapter & UndoHelper.UndoAdapter<
      * @param positions
      */
     public void remove(int... positions) {
-        Set<Integer> positionsSet = new TreeSet<>();
-        for (Integer position : positions)
-            positionsSet.add(position);
-        remove(positionsSet);
+        engine.remove(sortDistinct(positions.clone()));
     }
 
     /**
@@ -126,111 +136,162 @@ public class UndoHelper<A extends RecyclerView.Adapter & UndoHelper.UndoAdapter<
      * @param positions
      */
     public void remove(final Set<Integer> positions) {
-        // Notify old history
-        if (history != null) notifyCommit();
+        int[] positionsArray = new int[positions.size()];
+        int i = 0;
+        for (int position : positions)
+            positionsArray[i++] = position;
+        engine.remove(sortDistinct(positionsArray));
+    }
 
-        History history = new History(ACTION_REMOVE);
-        for (int position : positions) {
-            history.items.add(new ItemInfo<>(adapter.getDataSet().get(position), position));
+    /**
+     * Sorts the positions in place and returns them without duplicates
+     */
+    private static int[] sortDistinct(int[] positions) {
+        Arrays.sort(positions);
+        int count = 0;
+        for (int i = 0; i < positions.length; i++) {
+            if (i == 0 || positions[i] != positions[i - 1]) {
+                positions[count++] = positions[i];
+            }
         }
+        return count == positions.length ? positions : Arrays.copyOf(positions, count);
+    }
 
-        Collections.sort(history.items, new Comparator<ItemInfo<M>>() {
-            @Override
-            public int compare(ItemInfo<M> lhs, ItemInfo<M> rhs) {
-                return Integer.valueOf(lhs.position).compareTo(rhs.position);
-            }
-        });
+    /**
+     * Returns the set commit timeout or how long the snackbar is shown, 0 disables the timeout
+     */
+    private static long getCommitTimeoutMillis(Builder<?, ?> builder) {
+        if (builder.commitTimeoutMillis != COMMIT_TIMEOUT_FROM_SNACKBAR_DURATION) {
+            return builder.commitTimeoutMillis;
+        }
+        switch (builder.snackbarDuration) {
+            case Snackbar.LENGTH_INDEFINITE:
+                return 0;
+            case Snackbar.LENGTH_SHORT:
+                return SHORT_DURATION_MILLIS;
+            case Snackbar.LENGTH_LONG:
+                return LONG_DURATION_MILLIS;
+            default:
+                // Custom durations are in milliseconds
+                return builder.snackbarDuration;
+        }
+    }
 
-        this.history = history;
+    /**
+     * Inserts the models at the given position
+     */
+    public void insert(int position, List<M> models) {
+        engine.insert(position, models);
+    }
 
-        if (snackbar.isShown()) {
-            // Snackbar is currently shown so do change directly
-            doChange();
-        } else {
-            snackbar.show();
-        }
+    /**
+     * Moves {@code itemCount} items starting at {@code fromPosition} so that the first one ends up at {@code toPosition}
+     */
+    public void move(int fromPosition, int toPosition, int itemCount) {
+        engine.move(fromPosition, toPosition, itemCount);
     }
 
-    private void notifyCommit() {
-        if (history != null) {
-            if (history.action == ACTION_REMOVE) {
-                SortedSet<Integer> positions = new TreeSet<>(new Comparator<Integer>() {
-                    @Override
-                    public int compare(Integer lhs, Integer rhs) {
-                        return lhs.compareTo(rhs);
-                    }
-                });
+    /**
+     * Replaces the item at the given position
+     */
+    public void update(int position, M model) {
+        engine.update(position, model);
+    }
 
-                List<M> removedModels = new ArrayList<>();
+    /**
+     * Replaces the items at the given positions with the models at the same index
+     */
+    public void update(int[] positions, List<M> models) {
+        engine.update(positions, models);
+    }
 
-                for (ItemInfo<M> itemInfo : history.items) {
-                    positions.add(itemInfo.position);
-                    removedModels.add(itemInfo.model);
-                }
+    /**
+     * Applies the operation and adds it to the undo stack
+     */
+    public void perform(UndoOperation<M> operation) {
+        engine.perform(operation);
+    }
 
-                if (mUndoListener != null)
-                    mUndoListener.commitRemove(positions, removedModels);
+    /**
+     * Hands all commits which are waiting for their batch window to the commit executor
+     */
+    public void flushCommits() {
+        engine.flushCommits();
+    }
 
-                history = null;
-            }
-        }
+    /**
+     * @see UndoEngine#awaitCommits(long, TimeUnit)
+     */
+    public boolean awaitCommits(long timeout, TimeUnit unit) throws InterruptedException {
+        return engine.awaitCommits(timeout, unit);
     }
 
-    private void doChange() {
-        if (history != null) {
-            switch (history.action) {
-                case ACTION_REMOVE:
-                    for (int i = history.items.size() - 1; i >= 0; i--) {
-                        ItemInfo<M> itemInfo = history.items.get(i);
-                        adapter.getDataSet().remove(itemInfo.position);
-                        adapter.notifyItemRemoved(itemInfo.position);
-                    }
-                    break;
-            }
-        }
+    /**
+     * @see UndoEngine#isApplyingInBackground()
+     */
+    public boolean isApplyingInBackground() {
+        return engine.isApplyingInBackground();
     }
 
-    private void undoChange() {
-        if (history != null) {
-            switch (history.action) {
-                case ACTION_REMOVE:
-                    for (int i = 0, size = history.items.size(); i < size; i++) {
-                        ItemInfo<M> itemInfo = history.items.get(i);
-                        adapter.getDataSet().add(itemInfo.position, itemInfo.model);
-                        adapter.notifyItemInserted(itemInfo.position);
-                    }
-                    break;
-            }
+    private final ListUpdateListener adapterUpdateListener = new ListUpdateListener() {
+        @Override
+        public void onInserted(int position, int count) {
+            adapter.notifyItemRangeInserted(position, count);
+        }
+
+        @Override
+        public void onRemoved(int position, int count) {
+            adapter.notifyItemRangeRemoved(position, count);
+        }
+
+        @Override
+        public void onMoved(int fromPosition, int toPosition) {
+            adapter.notifyItemMoved(fromPosition, toPosition);
+        }
+
+        @Override
+        public void onChanged(int position, int count) {
+            adapter.notifyItemRangeChanged(position, count);
         }
-        history = null;
+    };
+
+    public interface UndoAdapter<M> extends UndoEngine.UndoAdapter<M> {
     }
 
-    public interface UndoAdapter<M> {
-        List<M> getDataSet();
+    public interface UndoListener<M> extends UndoEngine.UndoListener<M> {
     }
 
-    public interface UndoListener<M> {
-        void commitRemove(Set<Integer> positions, List<M> removed);
+    /**
+     * Receives the commits of the insert, move and update operations
+     */
+    public interface CommitListener<M> extends UndoEngine.CommitListener<M> {
     }
 
-    private static class ItemInfo<M> {
-        M model;
-        int position;
+    /**
+     * @see UndoEngine.ItemIdProvider
+     */
+    public interface ItemIdProvider<M> extends UndoEngine.ItemIdProvider<M> {
+    }
 
-        ItemInfo(M model, int position) {
-            this.model = model;
-            this.position = position;
-        }
+    /**
+     * @see UndoEngine.SpliceAdapter
+     */
+    public interface SpliceAdapter<M> extends UndoEngine.SpliceAdapter<M> {
     }
 
-    private class History {
+    /**
+     * @see UndoEngine.DataSetSwapper
+     */
+    public interface DataSetSwapper<M> extends UndoEngine.DataSetSwapper<M> {
+    }
 
-        private int action;
-        private List<ItemInfo<M>> items = new ArrayList<>();
+    /**
+     * @see UndoEngine.PositionLookup
+     */
+    public interface PositionLookup extends UndoEngine.PositionLookup {
+    }
 
-        private History(int action) {
-            this.action = action;
-        }
+    public interface ItemSizeEstimator<M> extends UndoEngine.ItemSizeEstimator<M> {
     }
 
     public static class Builder<A extends RecyclerView.Adapter & UndoHelper.UndoAdapter<M>, M> {
@@ -238,6 +299,9 @@ public class UndoHelper<A extends RecyclerView.Adapter & UndoHelper.UndoAdapter<
         private A adapter;
 
         private UndoListener<M> undoListener;
+        private CommitListener<M> commitListener;
+
+        private ItemIdProvider<M> idProvider;
 
         // Snackbar
         private View snackbarContainer;
@@ -246,6 +310,23 @@ public class UndoHelper<A extends RecyclerView.Adapter & UndoHelper.UndoAdapter<
         private int snackbarDuration = Snackbar.LENGTH_LONG;
         private int snackbarActionTextColor = Color.TRANSPARENT;
 
+        private UndoPresenter presenter;
+        private long commitTimeoutMillis = COMMIT_TIMEOUT_FROM_SNACKBAR_DURATION;
+
+        private int maxUndoOperations = 1;
+        private int maxUndoItems = Integer.MAX_VALUE;
+        private long maxUndoBytes = Long.MAX_VALUE;
+        private ItemSizeEstimator<M> itemSizeEstimator;
+
+        private Executor commitExecutor;
+        private long commitBatchWindowMillis;
+
+        private UndoJournal<M> journal;
+        private int journalRecoveryPolicy;
+
+        private Executor backgroundExecutor;
+        private int backgroundThreshold;
+
         public Builder<A, M> withAdapter(A adapter) {
             this.adapter = adapter;
             return this;
@@ -256,6 +337,22 @@ public class UndoHelper<A extends RecyclerView.Adapter & UndoHelper.UndoAdapter<
             return this;
         }
 
+        public Builder<A, M> withCommitListener(CommitListener<M> commitListener) {
+            this.commitListener = commitListener;
+            return this;
+        }
+
+        /**
+         * Records the ids of the affected items, so undo restores the right items at the right place
+         * even if the data set changed while the operation was pending, e.g. because a page was appended.
+         * Removed items get reinserted after the item which was in front of them,
+         * moves are still reverted by their positions. The adapter has to implement {@link PositionLookup}
+         */
+        public Builder<A, M> withStableIds(ItemIdProvider<M> idProvider) {
+            this.idProvider = idProvider;
+            return this;
+        }
+
         public Builder<A, M> withSnackbarContainer(View snackbarContainer) {
             this.snackbarContainer = snackbarContainer;
             return this;
@@ -281,13 +378,103 @@ public class UndoHelper<A extends RecyclerView.Adapter & UndoHelper.UndoAdapter<
             return this;
         }
 
+        /**
+         * Offers the pending operations with the presenter instead of a snackbar
+         */
+        public Builder<A, M> withPresenter(UndoPresenter presenter) {
+            this.presenter = presenter;
+            return this;
+        }
+
+        /**
+         * Commits all pending operations once no operation was performed for the given time,
+         * independent of how long the snackbar is shown. Defaults to the snackbar duration,
+         * operations are never committed by a timeout with {@link Snackbar#LENGTH_INDEFINITE}
+         */
+        public Builder<A, M> withCommitTimeout(long commitTimeoutMillis) {
+            this.commitTimeoutMillis = commitTimeoutMillis;
+            return this;
+        }
+
+        /**
+         * Sets how many operations can be undone, defaults to 1 which commits the previous operation
+         * as soon as a new one is added
+         */
+        public Builder<A, M> withMaxUndoOperations(int maxUndoOperations) {
+            this.maxUndoOperations = maxUndoOperations;
+            return this;
+        }
+
+        /**
+         * Sets how many removed items can be kept for undo across all operations
+         */
+        public Builder<A, M> withMaxUndoItems(int maxUndoItems) {
+            this.maxUndoItems = maxUndoItems;
+            return this;
+        }
+
+        /**
+         * Sets how many bytes of removed items can be kept for undo across all operations
+         */
+        public Builder<A, M> withMaxUndoBytes(long maxUndoBytes, ItemSizeEstimator<M> itemSizeEstimator) {
+            this.maxUndoBytes = maxUndoBytes;
+            this.itemSizeEstimator = itemSizeEstimator;
+            return this;
+        }
+
+        /**
+         * Sets the executor the listeners get committed on, by default commits run directly on the main thread
+         */
+        public Builder<A, M> withCommitExecutor(Executor commitExecutor) {
+            this.commitExecutor = commitExecutor;
+            return this;
+        }
+
+        /**
+         * Commits which happen within the window are passed to the listeners as one batch,
+         * consecutive removals are merged into a single {@link UndoListener#commitRemove(Set, List)} call
+         * with the positions of the data set before the first of them
+         */
+        public Builder<A, M> withCommitBatchWindow(long commitBatchWindowMillis) {
+            this.commitBatchWindowMillis = commitBatchWindowMillis;
+            return this;
+        }
+
+        /**
+         * Records pending removals in the journal so they survive a process death, the removals which were
+         * pending when the process died will be committed or rolled back on the sync executor of the journal
+         * once the helper gets built
+         *
+         * @param recoveryPolicy {@link UndoJournal#RECOVERY_COMMIT} or {@link UndoJournal#RECOVERY_ROLLBACK}
+         */
+        public Builder<A, M> withJournal(UndoJournal<M> journal, int recoveryPolicy) {
+            this.journal = journal;
+            this.journalRecoveryPolicy = recoveryPolicy;
+            return this;
+        }
+
+        /**
+         * Applies and undoes operations with at least {@code threshold} items on a copy of the data set on the
+         * executor, the main thread only swaps the copy in and dispatches the changed ranges.
+         * The adapter has to implement {@link DataSetSwapper}, a running operation is applied again if the data set
+         * changes meanwhile. Operations performed meanwhile are applied after the running one
+         */
+        public Builder<A, M> withBackgroundUpdates(Executor executor, int threshold) {
+            this.backgroundExecutor = executor;
+            this.backgroundThreshold = threshold;
+            return this;
+        }
+
         public UndoHelper<A, M> build() {
             if (adapter == null) {
                 throw new IllegalStateException("adapter has to be set");
             }
-            if (snackbarContainer == null) {
+            if (presenter == null && snackbarContainer == null) {
                 throw new IllegalStateException("snackbarContainer has to be set");
             }
+            if (maxUndoOperations < 1) {
+                throw new IllegalStateException("maxUndoOperations has to be at least 1");
+            }
 
             return new UndoHelper<>(this);
         }
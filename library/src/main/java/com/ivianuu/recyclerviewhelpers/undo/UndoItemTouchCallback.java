@@ -0,0 +1,82 @@
+package com.ivianuu.recyclerviewhelpers.undo;
+
+import android.os.SystemClock;
+import android.support.v7.widget.RecyclerView;
+import android.support.v7.widget.helper.ItemTouchHelper;
+import com.ivianuu.recyclerviewhelpers.core.undo.UndoEngine;
+
+/**
+ * Removes swiped items and moves dragged items through an {@link UndoHelper}.
+ *
+ * Swipes within the burst window of the previous one are merged into its history, so a burst of swipes
+ * is undone and committed as one. The steps of a drag are applied right away and recorded as a single move
+ * once the item is dropped.
+ */
+public class UndoItemTouchCallback extends ItemTouchHelper.SimpleCallback {
+
+    public static final long DEFAULT_BURST_WINDOW_MILLIS = 1000;
+
+    private final UndoEngine<?> engine;
+    private final long burstWindowMillis;
+
+    private long lastSwipeMillis = -1;
+
+    // Adapter positions of the item which is dragged right now
+    private int dragFromPosition = RecyclerView.NO_POSITION;
+    private int dragToPosition = RecyclerView.NO_POSITION;
+
+    public UndoItemTouchCallback(UndoHelper<?, ?> undoHelper, int dragDirs, int swipeDirs) {
+        this(undoHelper, dragDirs, swipeDirs, DEFAULT_BURST_WINDOW_MILLIS);
+    }
+
+    public UndoItemTouchCallback(UndoHelper<?, ?> undoHelper, int dragDirs, int swipeDirs, long burstWindowMillis) {
+        super(dragDirs, swipeDirs);
+        this.engine = undoHelper.getEngine();
+        this.burstWindowMillis = burstWindowMillis;
+    }
+
+    @Override
+    public boolean onMove(RecyclerView recyclerView, RecyclerView.ViewHolder viewHolder,
+                          RecyclerView.ViewHolder target) {
+        int fromPosition = viewHolder.getAdapterPosition();
+        int toPosition = target.getAdapterPosition();
+        if (fromPosition == RecyclerView.NO_POSITION || toPosition == RecyclerView.NO_POSITION) {
+            return false;
+        }
+        if (!engine.moveDirectly(fromPosition, toPosition)) {
+            return false;
+        }
+
+        if (dragFromPosition == RecyclerView.NO_POSITION) {
+            dragFromPosition = fromPosition;
+        }
+        dragToPosition = toPosition;
+        return true;
+    }
+
+    @Override
+    public void onSwiped(RecyclerView.ViewHolder viewHolder, int direction) {
+        int position = viewHolder.getAdapterPosition();
+        if (position == RecyclerView.NO_POSITION) {
+            return;
+        }
+
+        long now = SystemClock.uptimeMillis();
+        if (lastSwipeMillis == -1 || now - lastSwipeMillis > burstWindowMillis) {
+            engine.closeBurst();
+        }
+        lastSwipeMillis = now;
+
+        engine.removeInBurst(position);
+    }
+
+    @Override
+    public void clearView(RecyclerView recyclerView, RecyclerView.ViewHolder viewHolder) {
+        super.clearView(recyclerView, viewHolder);
+        if (dragFromPosition != RecyclerView.NO_POSITION) {
+            engine.recordMove(dragFromPosition, dragToPosition);
+            dragFromPosition = RecyclerView.NO_POSITION;
+            dragToPosition = RecyclerView.NO_POSITION;
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package com.ivianuu.recyclerviewhelpers.endlessscroll;
+
+import android.support.v7.widget.RecyclerView;
+import android.view.ViewGroup;
+import com.ivianuu.recyclerviewhelpers.BuildConfig;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 25)
+public class ChunkedPageDispatcherTest {
+
+    private ListAdapter adapter;
+    private final List<String> inserts = new ArrayList<>();
+
+    @Before
+    public void setUp() {
+        adapter = new ListAdapter();
+        adapter.registerAdapterDataObserver(new RecyclerView.AdapterDataObserver() {
+            @Override
+            public void onItemRangeInserted(int positionStart, int itemCount) {
+                inserts.add(positionStart + "+" + itemCount);
+            }
+        });
+    }
+
+    @Test
+    public void splitsPageIntoChunks() {
+        ChunkedPageDispatcher dispatcher = new ChunkedPageDispatcher(adapter, 10);
+        dispatcher.add(adapter.items, createItems(0, 25));
+
+        assertFalse(dispatcher.run(0));
+        assertFalse(dispatcher.run(0));
+        assertTrue(dispatcher.run(0));
+        assertFalse(dispatcher.hasPendingItems());
+
+        assertEquals(Arrays.asList("0+10", "10+10", "20+5"), inserts);
+        assertEquals(createItems(0, 25), adapter.items);
+    }
+
+    @Test
+    public void chunksDoNotSpanPages() {
+        ChunkedPageDispatcher dispatcher = new ChunkedPageDispatcher(adapter, 10);
+        dispatcher.add(adapter.items, createItems(0, 4));
+        dispatcher.add(adapter.items, createItems(4, 12));
+
+        assertFalse(dispatcher.run(0));
+        assertFalse(dispatcher.run(0));
+        assertTrue(dispatcher.run(0));
+
+        assertEquals(Arrays.asList("0+4", "4+10", "14+2"), inserts);
+        assertEquals(createItems(0, 16), adapter.items);
+    }
+
+    @Test
+    public void clearDropsPendingItems() {
+        ChunkedPageDispatcher dispatcher = new ChunkedPageDispatcher(adapter, 10);
+        dispatcher.add(adapter.items, createItems(0, 25));
+        dispatcher.run(0);
+        dispatcher.clear();
+
+        assertFalse(dispatcher.hasPendingItems());
+        assertTrue(dispatcher.run(0));
+        assertEquals(Collections.singletonList("0+10"), inserts);
+    }
+
+    private static List<String> createItems(int from, int count) {
+        List<String> items = new ArrayList<>();
+        for (int i = from; i < from + count; i++) {
+            items.add(String.valueOf(i));
+        }
+        return items;
+    }
+
+    private static class ListAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder> {
+
+        private final List<String> items = new ArrayList<>();
+
+        @Override
+        public RecyclerView.ViewHolder onCreateViewHolder(ViewGroup parent, int viewType) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void onBindViewHolder(RecyclerView.ViewHolder holder, int position) {
+        }
+
+        @Override
+        public int getItemCount() {
+            return items.size();
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.ivianuu.recyclerviewhelpers.endlessscroll;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+public class DeduplicationIndexTest {
+
+    private static final DeduplicationIndex.ItemIdProvider<Long> ID_PROVIDER =
+            new DeduplicationIndex.ItemIdProvider<Long>() {
+                @Override
+                public long getItemId(Long item) {
+                    return item;
+                }
+            };
+
+    @Test
+    public void filterDropsKnownIds() {
+        DeduplicationIndex<Long> index = new DeduplicationIndex<>(ID_PROVIDER);
+        assertEquals(Arrays.asList(1L, 2L, 3L), index.filter(Arrays.asList(1L, 2L, 3L)));
+        // Overlapping keyset page which also contains a duplicate of its own
+        assertEquals(Arrays.asList(4L, 5L), index.filter(Arrays.asList(3L, 4L, 4L, 5L)));
+        assertEquals(5, index.size());
+    }
+
+    @Test
+    public void removedIdsCanBeAddedAgain() {
+        DeduplicationIndex<Long> index = new DeduplicationIndex<>(ID_PROVIDER);
+        List<Long> items = new ArrayList<>();
+        for (long i = 0; i < 1000; i++) {
+            // Spread over the whole range including negative ids
+            items.add(i * 0x100000001L - 500);
+        }
+        index.addAll(items);
+
+        for (int i = 0; i < items.size(); i += 2) {
+            index.remove(items.get(i));
+        }
+        assertEquals(500, index.size());
+        for (int i = 0; i < items.size(); i++) {
+            assertEquals(i % 2 == 1, index.contains(items.get(i)));
+        }
+
+        assertEquals(500, index.filter(items).size());
+        assertEquals(1000, index.size());
+
+        index.clear();
+        assertEquals(0, index.size());
+        assertFalse(index.contains(items.get(1)));
+        assertEquals(1000, index.filter(items).size());
+    }
+}
@@ -0,0 +1,187 @@
+package com.ivianuu.recyclerviewhelpers.endlessscroll;
+
+import android.app.Activity;
+import android.os.Parcelable;
+import android.support.v7.widget.LinearLayoutManager;
+import android.support.v7.widget.RecyclerView;
+import android.view.View;
+import android.view.ViewGroup;
+import com.ivianuu.recyclerviewhelpers.BuildConfig;
+import com.ivianuu.recyclerviewhelpers.R;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 25)
+public class EndlessScrollHelperTest {
+
+    private RecyclerView recyclerView;
+    private ItemAdapter adapter;
+
+    @Before
+    public void setUp() {
+        Activity activity = Robolectric.buildActivity(Activity.class).setup().get();
+        recyclerView = new RecyclerView(activity);
+        recyclerView.setLayoutManager(new LinearLayoutManager(activity));
+        adapter = new ItemAdapter();
+        recyclerView.setAdapter(adapter);
+        activity.setContentView(recyclerView);
+    }
+
+    @Test
+    public void keysetLoadEndsOnlyWithToken() {
+        final List<String> tokens = new ArrayList<>();
+        EndlessScrollHelper helper = new EndlessScrollHelper.Builder()
+                .withRecyclerView(recyclerView)
+                .withKeysetCallbacks(new EndlessScrollHelper.KeysetCallbacks() {
+                    @Override
+                    public void onLoadMore(String continuationToken) {
+                        tokens.add(continuationToken);
+                    }
+                })
+                .build();
+        assertEquals(Collections.<String>singletonList(null), tokens);
+
+        // A live insert while the first page is loading must not request another one with the old token
+        adapter.insert("live");
+        runFrames();
+        assertEquals(Collections.<String>singletonList(null), tokens);
+
+        helper.appendPage(adapter.items, Arrays.asList("a", "b"));
+        helper.setContinuationToken("b");
+        runFrames();
+        assertEquals(Arrays.asList(null, "b"), tokens);
+    }
+
+    @Test
+    public void restoredHelperRequestsInterruptedPageAgain() {
+        final List<Integer> pages = new ArrayList<>();
+        EndlessScrollHelper.Callbacks callbacks = new EndlessScrollHelper.Callbacks() {
+            @Override
+            public void onLoadMore(int currentPage) {
+                pages.add(currentPage);
+            }
+        };
+        EndlessScrollHelper helper = new EndlessScrollHelper.Builder()
+                .withRecyclerView(recyclerView)
+                .withCallbacks(callbacks)
+                .build();
+        assertEquals(Collections.singletonList(2), pages);
+
+        // The process dies while page 2 is loading
+        Parcelable state = helper.onSaveInstanceState();
+        helper.unbind();
+        pages.clear();
+
+        EndlessScrollHelper restored = new EndlessScrollHelper.Builder()
+                .withRecyclerView(recyclerView)
+                .withCallbacks(callbacks)
+                .withSavedState(state)
+                .build();
+        assertEquals(Collections.singletonList(2), pages);
+        assertEquals(2, restored.getCurrentPage());
+    }
+
+    @Test
+    public void preInflatesViewHoldersIntoPool() throws InterruptedException {
+        PreInflatableAdapter preInflatableAdapter = new PreInflatableAdapter();
+        recyclerView.setAdapter(preInflatableAdapter);
+        new EndlessScrollHelper.Builder()
+                .withRecyclerView(recyclerView)
+                .withCallbacks(new EndlessScrollHelper.Callbacks() {
+                    @Override
+                    public void onLoadMore(int currentPage) {
+                    }
+                })
+                .withPreInflatedViewHolders(PreInflatableAdapter.VIEW_TYPE, 2)
+                .build();
+
+        // The views are inflated on the inflater thread and handed back through the main looper
+        for (int i = 0; i < 200 && preInflatableAdapter.preInflatedCount < 2; i++) {
+            Thread.sleep(10);
+            runFrames();
+        }
+        assertEquals(2, preInflatableAdapter.preInflatedCount);
+
+        RecyclerView.RecycledViewPool pool = recyclerView.getRecycledViewPool();
+        assertTrue(pool.getRecycledView(PreInflatableAdapter.VIEW_TYPE) != null);
+        assertTrue(pool.getRecycledView(PreInflatableAdapter.VIEW_TYPE) != null);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void preInflationWithoutLoadingItemIsRejected() {
+        recyclerView.setAdapter(new PreInflatableAdapter());
+        new EndlessScrollHelper.Builder()
+                .withRecyclerView(recyclerView)
+                .withCallbacks(new EndlessScrollHelper.Callbacks() {
+                    @Override
+                    public void onLoadMore(int currentPage) {
+                    }
+                })
+                .withAddLoadingItem(false)
+                .withPreInflatedViewHolders(PreInflatableAdapter.VIEW_TYPE, 2)
+                .build();
+    }
+
+    private static void runFrames() {
+        ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+    }
+
+    private static class PreInflatableAdapter extends ItemAdapter implements PreInflatableViewHolderCreator {
+
+        private static final int VIEW_TYPE = 7;
+
+        private int preInflatedCount;
+
+        @Override
+        public int getLayoutRes(int viewType) {
+            return R.layout.item_loading;
+        }
+
+        @Override
+        public RecyclerView.ViewHolder onCreateViewHolder(View itemView, int viewType) {
+            preInflatedCount++;
+            return new RecyclerView.ViewHolder(itemView) {
+            };
+        }
+    }
+
+    private static class ItemAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder> {
+
+        private final List<String> items = new ArrayList<>();
+
+        private void insert(String item) {
+            items.add(item);
+            notifyItemInserted(items.size() - 1);
+        }
+
+        @Override
+        public RecyclerView.ViewHolder onCreateViewHolder(ViewGroup parent, int viewType) {
+            return new RecyclerView.ViewHolder(new View(parent.getContext())) {
+            };
+        }
+
+        @Override
+        public void onBindViewHolder(RecyclerView.ViewHolder holder, int position) {
+        }
+
+        @Override
+        public int getItemCount() {
+            return items.size();
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package com.ivianuu.recyclerviewhelpers.endlessscroll;
+
+import android.support.v7.widget.RecyclerView;
+import com.ivianuu.recyclerviewhelpers.BuildConfig;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 25)
+public class IdleTaskSchedulerTest {
+
+    private static final long FRAME_BUDGET_NS = TimeUnit.MILLISECONDS.toNanos(8);
+
+    private FakeClockScheduler scheduler;
+
+    @Before
+    public void setUp() {
+        // Not attached, so nothing posted by the scheduler runs on its own, each run() is one frame
+        scheduler = new FakeClockScheduler(new RecyclerView(RuntimeEnvironment.application));
+    }
+
+    @Test
+    public void runsTasksWhichFitIntoFrame() {
+        FakeTask first = new FakeTask(TimeUnit.MILLISECONDS.toNanos(3), 1);
+        FakeTask second = new FakeTask(TimeUnit.MILLISECONDS.toNanos(3), 1);
+        FakeTask third = new FakeTask(TimeUnit.MILLISECONDS.toNanos(3), 1);
+        scheduler.schedule(first);
+        scheduler.schedule(second);
+        scheduler.schedule(third);
+
+        scheduler.run();
+        assertEquals(1, first.runs);
+        assertEquals(1, second.runs);
+        // Only 2 ms are left
+        assertEquals(0, third.runs);
+        assertTrue(scheduler.isScheduled(third));
+
+        scheduler.run();
+        assertEquals(1, third.runs);
+        assertFalse(scheduler.isScheduled(third));
+    }
+
+    @Test
+    public void unfinishedTaskRunsAgainNextFrame() {
+        FakeTask task = new FakeTask(0, 3);
+        scheduler.schedule(task);
+
+        scheduler.run();
+        scheduler.run();
+        assertTrue(scheduler.isScheduled(task));
+        scheduler.run();
+        assertFalse(scheduler.isScheduled(task));
+        assertEquals(3, task.runs);
+    }
+
+    @Test
+    public void taskWhichNeverFitsRunsAfterDeferredFrames() {
+        FakeTask task = new FakeTask(FRAME_BUDGET_NS * 2, 1);
+        scheduler.schedule(task);
+
+        for (int i = 0; i < 4; i++) {
+            scheduler.run();
+            assertEquals(0, task.runs);
+        }
+        scheduler.run();
+        assertEquals(1, task.runs);
+    }
+
+    @Test
+    public void cancelDropsTasks() {
+        FakeTask task = new FakeTask(0, 1);
+        scheduler.schedule(task);
+        scheduler.cancel();
+
+        scheduler.run();
+        assertFalse(scheduler.isScheduled(task));
+        assertEquals(0, task.runs);
+    }
+
+    /**
+     * Every frame starts at the same time and a task advances the clock by its estimated cost
+     */
+    private static class FakeClockScheduler extends IdleTaskScheduler {
+
+        private long now;
+        private long frameStart;
+
+        private FakeClockScheduler(RecyclerView recyclerView) {
+            super(recyclerView);
+        }
+
+        @Override
+        public void run() {
+            now = frameStart;
+            super.run();
+        }
+
+        @Override
+        long getFrameDeadlineNs() {
+            return frameStart + FRAME_BUDGET_NS;
+        }
+
+        @Override
+        long nanoTime() {
+            return now;
+        }
+    }
+
+    private class FakeTask implements IdleTaskScheduler.IdleTask {
+
+        private final long costNs;
+        private final int runsUntilDone;
+        private int runs;
+
+        private FakeTask(long costNs, int runsUntilDone) {
+            this.costNs = costNs;
+            this.runsUntilDone = runsUntilDone;
+        }
+
+        @Override
+        public long getEstimatedCostNs() {
+            return costNs;
+        }
+
+        @Override
+        public boolean run(long deadlineNs) {
+            runs++;
+            scheduler.now += costNs;
+            return runs == runsUntilDone;
+        }
+    }
+}
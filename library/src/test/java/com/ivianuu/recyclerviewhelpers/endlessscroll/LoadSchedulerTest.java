@@ -0,0 +1,169 @@
+package com.ivianuu.recyclerviewhelpers.endlessscroll;
+
+import android.app.Activity;
+import android.support.v7.widget.LinearLayoutManager;
+import android.support.v7.widget.RecyclerView;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.FrameLayout;
+import com.ivianuu.recyclerviewhelpers.BuildConfig;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * The main looper is paused, so posted dispatches only run when the test advances the clock with {@link #runFrames()}
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 25)
+public class LoadSchedulerTest {
+
+    private Activity activity;
+    private FrameLayout root;
+    private LoadScheduler scheduler;
+    private final List<String> loads = new ArrayList<>();
+
+    @Before
+    public void setUp() {
+        activity = Robolectric.buildActivity(Activity.class).setup().get();
+        root = new FrameLayout(activity);
+        activity.setContentView(root);
+        scheduler = new LoadScheduler(1);
+        ShadowLooper.pauseMainLooper();
+        runFrames();
+    }
+
+    @After
+    public void tearDown() {
+        ShadowLooper.unPauseMainLooper();
+    }
+
+    @Test
+    public void finishedLoadAdmitsVisibleListFirst() {
+        EndlessScrollHelper first = createHelper("first", addList(View.VISIBLE));
+        RecyclerView offscreen = addList(View.INVISIBLE);
+        RecyclerView visible = addList(View.VISIBLE);
+        runFrames();
+
+        createHelper("offscreen", offscreen);
+        createHelper("visible", visible);
+        assertEquals(Collections.singletonList("first"), loads);
+        assertEquals(1, scheduler.getRunningLoadCount());
+        assertEquals(2, scheduler.getPendingLoadCount());
+
+        first.setAllItemsLoaded();
+        assertEquals(Arrays.asList("first", "visible"), loads);
+        assertEquals(1, scheduler.getPendingLoadCount());
+    }
+
+    @Test
+    public void layoutChangesDispatchOnceAfterLayoutPass() {
+        RecyclerView recyclerView = addList(View.VISIBLE);
+        // Attached but not laid out yet, so its visibility isn't known
+        createHelper("list", recyclerView);
+        assertEquals(Collections.<String>emptyList(), loads);
+        assertEquals(1, scheduler.getPendingLoadCount());
+
+        for (int i = 1; i <= 3; i++) {
+            recyclerView.measure(View.MeasureSpec.makeMeasureSpec(100 * i, View.MeasureSpec.EXACTLY),
+                    View.MeasureSpec.makeMeasureSpec(100 * i, View.MeasureSpec.EXACTLY));
+            recyclerView.layout(0, 0, 100 * i, 100 * i);
+        }
+        // Nothing starts in the middle of the layout pass
+        assertEquals(Collections.<String>emptyList(), loads);
+
+        runFrames();
+        assertEquals(Collections.singletonList("list"), loads);
+        assertEquals(0, scheduler.getPendingLoadCount());
+    }
+
+    @Test
+    public void unbindCancelsPendingLoad() {
+        EndlessScrollHelper first = createHelper("first", addList(View.VISIBLE));
+        RecyclerView recyclerView = addList(View.VISIBLE);
+        runFrames();
+
+        EndlessScrollHelper second = createHelper("second", recyclerView);
+        assertEquals(1, scheduler.getPendingLoadCount());
+
+        second.unbind();
+        assertEquals(0, scheduler.getPendingLoadCount());
+
+        first.setAllItemsLoaded();
+        runFrames();
+        assertEquals(Collections.singletonList("first"), loads);
+        assertEquals(0, scheduler.getRunningLoadCount());
+    }
+
+    @Test
+    public void detachedListWaitsUntilItIsAttachedAgain() {
+        RecyclerView recyclerView = addList(View.VISIBLE);
+        createHelper("list", recyclerView);
+        root.removeView(recyclerView);
+        runFrames();
+        assertEquals(Collections.<String>emptyList(), loads);
+        assertEquals(1, scheduler.getPendingLoadCount());
+
+        root.addView(recyclerView);
+        runFrames();
+        assertEquals(Collections.singletonList("list"), loads);
+        assertEquals(1, scheduler.getRunningLoadCount());
+    }
+
+    private RecyclerView addList(int visibility) {
+        RecyclerView recyclerView = new RecyclerView(activity);
+        recyclerView.setLayoutManager(new LinearLayoutManager(activity));
+        recyclerView.setAdapter(new EmptyAdapter());
+        recyclerView.setVisibility(visibility);
+        root.addView(recyclerView, new FrameLayout.LayoutParams(
+                ViewGroup.LayoutParams.MATCH_PARENT, ViewGroup.LayoutParams.MATCH_PARENT));
+        return recyclerView;
+    }
+
+    private EndlessScrollHelper createHelper(final String name, RecyclerView recyclerView) {
+        return new EndlessScrollHelper.Builder()
+                .withRecyclerView(recyclerView)
+                .withLoadScheduler(scheduler)
+                .withCallbacks(new EndlessScrollHelper.Callbacks() {
+                    @Override
+                    public void onLoadMore(int currentPage) {
+                        loads.add(name);
+                    }
+                })
+                .build();
+    }
+
+    private static void runFrames() {
+        ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+    }
+
+    private static class EmptyAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder> {
+
+        @Override
+        public RecyclerView.ViewHolder onCreateViewHolder(ViewGroup parent, int viewType) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void onBindViewHolder(RecyclerView.ViewHolder holder, int position) {
+        }
+
+        @Override
+        public int getItemCount() {
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.ivianuu.recyclerviewhelpers.endlessscroll;
+
+import android.support.v7.widget.RecyclerView;
+import android.view.View;
+import android.view.ViewGroup;
+import com.ivianuu.recyclerviewhelpers.BuildConfig;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 25)
+public class WrapperAdapterTest {
+
+    private static final int ITEM_COUNT = 10;
+
+    @Test
+    public void rangeMoveStartsAtToPositionInBothDirections() {
+        for (int itemCount = 1; itemCount <= 4; itemCount++) {
+            for (int from = 0; from <= ITEM_COUNT - itemCount; from++) {
+                for (int to = 0; to <= ITEM_COUNT - itemCount; to++) {
+                    assertRangeMove(from, to, itemCount);
+                }
+            }
+        }
+    }
+
+    private static void assertRangeMove(int from, int to, int itemCount) {
+        WrapperAdapter wrapperAdapter = new WrapperAdapter(new FixedAdapter(), LoadingItemCreator.DEFAULT);
+        final List<Integer> actual = createItems();
+        wrapperAdapter.registerAdapterDataObserver(new RecyclerView.AdapterDataObserver() {
+            @Override
+            public void onItemRangeMoved(int fromPosition, int toPosition, int itemCount) {
+                assertEquals(1, itemCount);
+                actual.add(toPosition, actual.remove(fromPosition));
+            }
+        });
+
+        wrapperAdapter.notifyItemRangeMoved(from, to, itemCount);
+
+        List<Integer> expected = createItems();
+        List<Integer> moved = new ArrayList<>(expected.subList(from, from + itemCount));
+        expected.subList(from, from + itemCount).clear();
+        expected.addAll(to, moved);
+        assertEquals("move " + from + " " + to + " " + itemCount, expected, actual);
+    }
+
+    private static List<Integer> createItems() {
+        List<Integer> items = new ArrayList<>();
+        for (int i = 0; i < ITEM_COUNT; i++) {
+            items.add(i);
+        }
+        return items;
+    }
+
+    private static class FixedAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder> {
+        @Override
+        public RecyclerView.ViewHolder onCreateViewHolder(ViewGroup parent, int viewType) {
+            return new RecyclerView.ViewHolder(new View(parent.getContext())) {
+            };
+        }
+
+        @Override
+        public void onBindViewHolder(RecyclerView.ViewHolder holder, int position) {
+        }
+
+        @Override
+        public int getItemCount() {
+            return ITEM_COUNT;
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package com.ivianuu.recyclerviewhelpers.endlessscroll;
+
+import android.support.v7.widget.GridLayoutManager;
+import android.support.v7.widget.RecyclerView;
+import android.view.View;
+import android.view.ViewGroup;
+import com.ivianuu.recyclerviewhelpers.BuildConfig;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Compares the cached span indices against the uncached reference loop of {@link GridLayoutManager.SpanSizeLookup}
+ * after random adapter changes
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 25)
+public class WrapperSpanSizeLookupTest {
+
+    private static final int STEPS = 300;
+    // Span sizes never exceed the smallest span count
+    private static final int MAX_SPAN_SIZE = 3;
+    private static final int LOADING_ITEM_SPAN = 3;
+
+    @Test
+    public void matchesReferenceLoopAfterRandomChanges() throws Exception {
+        Method getCachedSpanIndex = GridLayoutManager.SpanSizeLookup.class
+                .getDeclaredMethod("getCachedSpanIndex", int.class, int.class);
+        getCachedSpanIndex.setAccessible(true);
+
+        Random random = new Random(42);
+        final SpanSizeAdapter adapter = new SpanSizeAdapter();
+        for (int i = 0; i < 50; i++) {
+            adapter.spanSizes.add(1 + random.nextInt(MAX_SPAN_SIZE));
+        }
+
+        WrapperAdapter wrapperAdapter = new WrapperAdapter(adapter, LoadingItemCreator.DEFAULT);
+        adapter.registerAdapterDataObserver(new ForwardingObserver(wrapperAdapter));
+
+        GridLayoutManager.SpanSizeLookup wrappedLookup = new GridLayoutManager.SpanSizeLookup() {
+            @Override
+            public int getSpanSize(int position) {
+                return adapter.spanSizes.get(position);
+            }
+        };
+        final WrapperSpanSizeLookup lookup = new WrapperSpanSizeLookup(wrappedLookup, LOADING_ITEM_SPAN, wrapperAdapter);
+        GridLayoutManager.SpanSizeLookup reference = new GridLayoutManager.SpanSizeLookup() {
+            @Override
+            public int getSpanSize(int position) {
+                return lookup.getSpanSize(position);
+            }
+        };
+
+        int spanCount = MAX_SPAN_SIZE;
+        for (int step = 0; step < STEPS; step++) {
+            int itemCount = adapter.spanSizes.size();
+            int action = itemCount == 0 ? 0 : random.nextInt(6);
+            if (action == 0) {
+                int positionStart = random.nextInt(itemCount + 1);
+                int count = 1 + random.nextInt(5);
+                for (int i = 0; i < count; i++) {
+                    adapter.spanSizes.add(positionStart, 1 + random.nextInt(MAX_SPAN_SIZE));
+                }
+                adapter.notifyItemRangeInserted(positionStart, count);
+            } else if (action == 1) {
+                int positionStart = random.nextInt(itemCount);
+                int count = 1 + random.nextInt(Math.min(5, itemCount - positionStart));
+                adapter.spanSizes.subList(positionStart, positionStart + count).clear();
+                adapter.notifyItemRangeRemoved(positionStart, count);
+            } else if (action == 2) {
+                int position = random.nextInt(itemCount);
+                adapter.spanSizes.set(position, 1 + random.nextInt(MAX_SPAN_SIZE));
+                adapter.notifyItemChanged(position);
+            } else if (action == 3) {
+                int fromPosition = random.nextInt(itemCount);
+                int toPosition = random.nextInt(itemCount);
+                adapter.spanSizes.add(toPosition, adapter.spanSizes.remove(fromPosition));
+                adapter.notifyItemMoved(fromPosition, toPosition);
+            } else if (action == 4) {
+                wrapperAdapter.showLoadingItem(!wrapperAdapter.isShowingLoadingItem());
+            } else {
+                // Like GridLayoutManager#setSpanCount()
+                spanCount = MAX_SPAN_SIZE + random.nextInt(3);
+            }
+            // The GridLayoutManager invalidates the cache for every change
+            lookup.invalidateSpanIndexCache();
+
+            for (int position = 0; position < wrapperAdapter.getItemCount(); position++) {
+                String message = "step " + step + " position " + position + " span count " + spanCount;
+                int spanIndex = reference.getSpanIndex(position, spanCount);
+                assertEquals(message, spanIndex, lookup.getSpanIndex(position, spanCount));
+                assertEquals(message, spanIndex, getCachedSpanIndex.invoke(lookup, position, spanCount));
+                assertEquals(message, reference.getSpanGroupIndex(position, spanCount),
+                        lookup.getSpanGroupIndex(position, spanCount));
+            }
+        }
+    }
+
+    private static class SpanSizeAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder> {
+
+        private final List<Integer> spanSizes = new ArrayList<>();
+
+        @Override
+        public RecyclerView.ViewHolder onCreateViewHolder(ViewGroup parent, int viewType) {
+            return new RecyclerView.ViewHolder(new View(parent.getContext())) {
+            };
+        }
+
+        @Override
+        public void onBindViewHolder(RecyclerView.ViewHolder holder, int position) {
+        }
+
+        @Override
+        public int getItemCount() {
+            return spanSizes.size();
+        }
+    }
+
+    /**
+     * Forwards the changes of the wrapped adapter like the {@link EndlessScrollHelper} does
+     */
+    private static class ForwardingObserver extends RecyclerView.AdapterDataObserver {
+
+        private final WrapperAdapter wrapperAdapter;
+
+        private ForwardingObserver(WrapperAdapter wrapperAdapter) {
+            this.wrapperAdapter = wrapperAdapter;
+        }
+
+        @Override
+        public void onItemRangeChanged(int positionStart, int itemCount) {
+            wrapperAdapter.notifyItemRangeChanged(positionStart, itemCount);
+        }
+
+        @Override
+        public void onItemRangeInserted(int positionStart, int itemCount) {
+            wrapperAdapter.notifyItemRangeInserted(positionStart, itemCount);
+        }
+
+        @Override
+        public void onItemRangeRemoved(int positionStart, int itemCount) {
+            wrapperAdapter.notifyItemRangeRemoved(positionStart, itemCount);
+        }
+
+        @Override
+        public void onItemRangeMoved(int fromPosition, int toPosition, int itemCount) {
+            wrapperAdapter.notifyItemRangeMoved(fromPosition, toPosition, itemCount);
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package com.ivianuu.recyclerviewhelpers.performance;
+
+import android.content.Context;
+import android.support.v7.widget.RecyclerView;
+import android.view.View;
+import android.view.ViewGroup;
+import com.ivianuu.recyclerviewhelpers.stickyheaders.StickyHeaders;
+import com.ivianuu.recyclerviewhelpers.undo.UndoHelper;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Adapter of fixed height rows which reports every create, bind, measure and layout to the {@link FrameCounters}
+ */
+class CountingAdapter extends RecyclerView.Adapter<CountingAdapter.Holder>
+        implements StickyHeaders, UndoHelper.UndoAdapter<String> {
+
+    static final int ITEM_HEIGHT = 48;
+
+    private final FrameCounters counters;
+    private final List<String> items = new ArrayList<>();
+    private final int headerInterval;
+
+    CountingAdapter(FrameCounters counters, int itemCount, int headerInterval) {
+        this.counters = counters;
+        this.headerInterval = headerInterval;
+        items.addAll(createItems(0, itemCount, headerInterval));
+    }
+
+    /**
+     * Returns items where every {@code headerInterval}th item is a header
+     */
+    static List<String> createItems(int offset, int count, int headerInterval) {
+        List<String> items = new ArrayList<>(count);
+        for (int i = offset; i < offset + count; i++) {
+            items.add(headerInterval > 0 && i % headerInterval == 0 ? "header " + i : "item " + i);
+        }
+        return items;
+    }
+
+    @Override
+    public Holder onCreateViewHolder(ViewGroup parent, int viewType) {
+        counters.creates++;
+        return new Holder(new CountingView(parent.getContext(), counters));
+    }
+
+    @Override
+    public void onBindViewHolder(Holder holder, int position) {
+        counters.binds++;
+        holder.itemView.setTag(items.get(position));
+    }
+
+    @Override
+    public int getItemCount() {
+        return items.size();
+    }
+
+    @Override
+    public boolean isStickyHeader(int position) {
+        return headerInterval > 0 && items.get(position).startsWith("header");
+    }
+
+    @Override
+    public List<String> getDataSet() {
+        return items;
+    }
+
+    static class Holder extends RecyclerView.ViewHolder {
+        Holder(View itemView) {
+            super(itemView);
+        }
+    }
+
+    private static class CountingView extends View {
+
+        private final FrameCounters counters;
+
+        CountingView(Context context, FrameCounters counters) {
+            super(context);
+            this.counters = counters;
+            setLayoutParams(new RecyclerView.LayoutParams(
+                    ViewGroup.LayoutParams.MATCH_PARENT, ITEM_HEIGHT));
+        }
+
+        @Override
+        protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+            counters.measures++;
+            setMeasuredDimension(MeasureSpec.getSize(widthMeasureSpec), ITEM_HEIGHT);
+        }
+
+        @Override
+        protected void onLayout(boolean changed, int left, int top, int right, int bottom) {
+            counters.layouts++;
+        }
+    }
+}
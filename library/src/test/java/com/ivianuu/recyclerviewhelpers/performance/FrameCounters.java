@@ -0,0 +1,82 @@
+package com.ivianuu.recyclerviewhelpers.performance;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Counts the work done while driving a scripted scenario
+ */
+final class FrameCounters {
+
+    static final String CREATES = "creates";
+    static final String BINDS = "binds";
+    static final String MEASURES = "measures";
+    static final String LAYOUTS = "layouts";
+    static final String ALLOCATED_BYTES = "allocatedBytes";
+
+    int creates;
+    int binds;
+    int measures;
+    int layouts;
+    int frames;
+
+    private long allocatedBytesAtStart;
+    private long allocatedBytes;
+
+    /**
+     * Resets all counters and starts tracking allocations of the current thread
+     */
+    void start() {
+        creates = 0;
+        binds = 0;
+        measures = 0;
+        layouts = 0;
+        frames = 0;
+        allocatedBytes = 0;
+        allocatedBytesAtStart = currentThreadAllocatedBytes();
+    }
+
+    /**
+     * Stops tracking allocations
+     */
+    void stop() {
+        long allocatedBytesAtEnd = currentThreadAllocatedBytes();
+        allocatedBytes = allocatedBytesAtStart == -1 || allocatedBytesAtEnd == -1
+                ? -1 : allocatedBytesAtEnd - allocatedBytesAtStart;
+    }
+
+    /**
+     * Returns the counters divided by the number of frames,
+     * allocations are left out if the jvm can't measure them
+     */
+    Map<String, Double> perFrame() {
+        int frameCount = Math.max(1, frames);
+        Map<String, Double> stats = new LinkedHashMap<>();
+        stats.put(CREATES, (double) creates / frameCount);
+        stats.put(BINDS, (double) binds / frameCount);
+        stats.put(MEASURES, (double) measures / frameCount);
+        stats.put(LAYOUTS, (double) layouts / frameCount);
+        if (allocatedBytes != -1) {
+            stats.put(ALLOCATED_BYTES, (double) allocatedBytes / frameCount);
+        }
+        return stats;
+    }
+
+    private static long currentThreadAllocatedBytes() {
+        ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+        if (!(threadMXBean instanceof com.sun.management.ThreadMXBean)) {
+            return -1;
+        }
+
+        com.sun.management.ThreadMXBean sunThreadMXBean = (com.sun.management.ThreadMXBean) threadMXBean;
+        if (!sunThreadMXBean.isThreadAllocatedMemorySupported()) {
+            return -1;
+        }
+        if (!sunThreadMXBean.isThreadAllocatedMemoryEnabled()) {
+            sunThreadMXBean.setThreadAllocatedMemoryEnabled(true);
+        }
+        return sunThreadMXBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+}
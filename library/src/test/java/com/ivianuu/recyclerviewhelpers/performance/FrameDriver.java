@@ -0,0 +1,67 @@
+package com.ivianuu.recyclerviewhelpers.performance;
+
+import android.app.Activity;
+import android.support.v7.widget.RecyclerView;
+import android.view.View;
+
+import org.robolectric.Robolectric;
+import org.robolectric.shadows.ShadowLooper;
+
+/**
+ * Hosts a {@link RecyclerView} in an activity and drives it frame by frame
+ */
+final class FrameDriver {
+
+    static final int WIDTH = 1080;
+    static final int HEIGHT = 1920;
+
+    final RecyclerView recyclerView;
+
+    private final FrameCounters counters;
+
+    FrameDriver(FrameCounters counters) {
+        this.counters = counters;
+        Activity activity = Robolectric.buildActivity(Activity.class).setup().get();
+        recyclerView = new RecyclerView(activity);
+        activity.setContentView(recyclerView);
+    }
+
+    /**
+     * Runs the pending layout pass, used to lay out the initial state before counting starts
+     */
+    void layout() {
+        ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+        if (recyclerView.isLayoutRequested()) {
+            recyclerView.measure(
+                    View.MeasureSpec.makeMeasureSpec(WIDTH, View.MeasureSpec.EXACTLY),
+                    View.MeasureSpec.makeMeasureSpec(HEIGHT, View.MeasureSpec.EXACTLY));
+            recyclerView.layout(0, 0, WIDTH, HEIGHT);
+        }
+    }
+
+    /**
+     * Applies the input, runs all posted animation callbacks and the resulting layout pass as one frame
+     */
+    void frame(Runnable input) {
+        input.run();
+        layout();
+        counters.frames++;
+    }
+
+    /**
+     * Scrolls by decaying deltas like a fling would
+     */
+    void fling(int velocity, int frames) {
+        final int[] delta = {velocity};
+        Runnable scroll = new Runnable() {
+            @Override
+            public void run() {
+                recyclerView.scrollBy(0, delta[0]);
+            }
+        };
+        for (int i = 0; i < frames && delta[0] != 0; i++) {
+            frame(scroll);
+            delta[0] = delta[0] * 9 / 10;
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package com.ivianuu.recyclerviewhelpers.performance;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import static org.junit.Assert.fail;
+
+/**
+ * Compares the per frame counters of a scenario against the stored baselines in
+ * {@code performance-baselines.properties}. Every run records its counters to {@code build/reports/performance}
+ * so they can be copied into the baselines, a counter without baseline fails the scenario.
+ * Allocated bytes include the allocations of the Robolectric shadows, they are recorded but not checked.
+ */
+final class PerformanceBaselines {
+
+    private static final String BASELINES = "/performance-baselines.properties";
+    private static final String TOLERANCE = "tolerance";
+    private static final String RECORD_COMMAND = "./gradlew :library:testDebugUnitTest --tests '*.ScrollPerformanceTest'";
+    private static final File REPORT_DIR = new File("build/reports/performance");
+
+    private final Properties baselines = new Properties();
+
+    PerformanceBaselines() {
+        InputStream in = PerformanceBaselines.class.getResourceAsStream(BASELINES);
+        if (in == null) {
+            throw new IllegalStateException(BASELINES + " is missing");
+        }
+        try {
+            baselines.load(in);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        } finally {
+            try {
+                in.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    void check(String scenario, FrameCounters counters) {
+        Map<String, Double> stats = counters.perFrame();
+        record(scenario, stats);
+
+        double tolerance = Double.parseDouble(baselines.getProperty(TOLERANCE, "0.05"));
+
+        List<String> regressions = new ArrayList<>();
+        for (Map.Entry<String, Double> stat : stats.entrySet()) {
+            if (FrameCounters.ALLOCATED_BYTES.equals(stat.getKey())) {
+                continue;
+            }
+
+            String baseline = baselines.getProperty(scenario + "." + stat.getKey());
+            if (baseline == null) {
+                regressions.add(stat.getKey() + " " + stat.getValue() + " has no baseline, record it with "
+                        + RECORD_COMMAND + " and copy " + REPORT_DIR + "/" + scenario + ".properties");
+                continue;
+            }
+
+            double limit = Double.parseDouble(baseline) * (1 + tolerance);
+            if (stat.getValue() > limit) {
+                regressions.add(stat.getKey() + " " + stat.getValue() + " > " + baseline);
+            }
+        }
+
+        if (!regressions.isEmpty()) {
+            fail(scenario + " regressed: " + regressions);
+        }
+    }
+
+    private static void record(String scenario, Map<String, Double> stats) {
+        Properties recorded = new Properties();
+        for (Map.Entry<String, Double> stat : stats.entrySet()) {
+            recorded.setProperty(scenario + "." + stat.getKey(), String.valueOf(stat.getValue()));
+        }
+
+        if (!REPORT_DIR.isDirectory() && !REPORT_DIR.mkdirs()) {
+            return;
+        }
+        OutputStream out = null;
+        try {
+            out = new FileOutputStream(new File(REPORT_DIR, scenario + ".properties"));
+            recorded.store(out, null);
+        } catch (IOException ignored) {
+            // the report is a convenience only
+        } finally {
+            if (out != null) {
+                try {
+                    out.close();
+                } catch (IOException ignored) {
+                }
+            }
+        }
+    }
+}
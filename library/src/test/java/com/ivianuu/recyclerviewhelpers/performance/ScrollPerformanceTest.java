@@ -0,0 +1,200 @@
+package com.ivianuu.recyclerviewhelpers.performance;
+
+import android.support.v7.util.DiffUtil;
+import android.support.v7.widget.LinearLayoutManager;
+import com.ivianuu.recyclerviewhelpers.BuildConfig;
+import com.ivianuu.recyclerviewhelpers.core.undo.UndoEngine;
+import com.ivianuu.recyclerviewhelpers.core.undo.UndoPresenter;
+import com.ivianuu.recyclerviewhelpers.endlessscroll.EndlessScrollHelper;
+import com.ivianuu.recyclerviewhelpers.stickyheaders.StickyHeadersLinearLayoutManager;
+import com.ivianuu.recyclerviewhelpers.undo.UndoHelper;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Drives the helpers through scripted scenarios and fails if the work per frame regresses past the baselines
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 25)
+public class ScrollPerformanceTest {
+
+    private static final int ITEM_COUNT = 1000;
+    private static final int HEADER_INTERVAL = 10;
+    private static final int FLING_VELOCITY = 400;
+    private static final int FLING_FRAMES = 60;
+
+    private FrameCounters counters;
+    private FrameDriver driver;
+    private PerformanceBaselines baselines;
+
+    @Before
+    public void setUp() {
+        counters = new FrameCounters();
+        driver = new FrameDriver(counters);
+        baselines = new PerformanceBaselines();
+    }
+
+    @Test
+    public void stickyHeadersFling() {
+        CountingAdapter adapter = new CountingAdapter(counters, ITEM_COUNT, HEADER_INTERVAL);
+        driver.recyclerView.setLayoutManager(
+                new StickyHeadersLinearLayoutManager<CountingAdapter>(driver.recyclerView.getContext()));
+        driver.recyclerView.setAdapter(adapter);
+        driver.layout();
+
+        counters.start();
+        for (int i = 0; i < 5; i++) {
+            driver.fling(FLING_VELOCITY, FLING_FRAMES);
+            driver.fling(-FLING_VELOCITY, FLING_FRAMES);
+        }
+        counters.stop();
+
+        baselines.check("stickyHeadersFling", counters);
+    }
+
+    @Test
+    public void endlessScrollFling() {
+        final CountingAdapter adapter = new CountingAdapter(counters, 50, 0);
+        driver.recyclerView.setLayoutManager(new LinearLayoutManager(driver.recyclerView.getContext()));
+        driver.recyclerView.setAdapter(adapter);
+
+        final EndlessScrollHelper[] helper = new EndlessScrollHelper[1];
+        helper[0] = new EndlessScrollHelper.Builder()
+                .withRecyclerView(driver.recyclerView)
+                .withCallbacks(new EndlessScrollHelper.Callbacks() {
+                    @Override
+                    public void onLoadMore(int currentPage) {
+                        helper[0].appendPage(adapter.getDataSet(),
+                                CountingAdapter.createItems(adapter.getItemCount(), 50, 0));
+                    }
+                })
+                .build();
+        driver.layout();
+
+        counters.start();
+        for (int i = 0; i < 10; i++) {
+            driver.fling(FLING_VELOCITY, FLING_FRAMES);
+        }
+        counters.stop();
+
+        helper[0].unbind();
+        baselines.check("endlessScrollFling", counters);
+    }
+
+    @Test
+    public void diffUtilBursts() {
+        final CountingAdapter adapter = new CountingAdapter(counters, ITEM_COUNT, HEADER_INTERVAL);
+        driver.recyclerView.setLayoutManager(
+                new StickyHeadersLinearLayoutManager<CountingAdapter>(driver.recyclerView.getContext()));
+        driver.recyclerView.setAdapter(adapter);
+        driver.layout();
+
+        final Random random = new Random(42);
+        Runnable burst = new Runnable() {
+            @Override
+            public void run() {
+                final List<String> oldItems = new ArrayList<>(adapter.getDataSet());
+                final List<String> newItems = new ArrayList<>(oldItems);
+                for (int i = 0; i < 20; i++) {
+                    int position = random.nextInt(newItems.size());
+                    if (random.nextBoolean()) {
+                        newItems.remove(position);
+                    } else {
+                        newItems.add(position, "inserted " + random.nextInt());
+                    }
+                }
+
+                DiffUtil.DiffResult result = DiffUtil.calculateDiff(new DiffUtil.Callback() {
+                    @Override
+                    public int getOldListSize() {
+                        return oldItems.size();
+                    }
+
+                    @Override
+                    public int getNewListSize() {
+                        return newItems.size();
+                    }
+
+                    @Override
+                    public boolean areItemsTheSame(int oldItemPosition, int newItemPosition) {
+                        return oldItems.get(oldItemPosition).equals(newItems.get(newItemPosition));
+                    }
+
+                    @Override
+                    public boolean areContentsTheSame(int oldItemPosition, int newItemPosition) {
+                        return true;
+                    }
+                });
+                adapter.getDataSet().clear();
+                adapter.getDataSet().addAll(newItems);
+                result.dispatchUpdatesTo(adapter);
+                driver.recyclerView.scrollBy(0, FLING_VELOCITY / 4);
+            }
+        };
+
+        counters.start();
+        for (int i = 0; i < 30; i++) {
+            driver.frame(burst);
+        }
+        counters.stop();
+
+        baselines.check("diffUtilBursts", counters);
+    }
+
+    @Test
+    public void bulkDelete() {
+        final CountingAdapter adapter = new CountingAdapter(counters, ITEM_COUNT, 0);
+        driver.recyclerView.setLayoutManager(new LinearLayoutManager(driver.recyclerView.getContext()));
+        driver.recyclerView.setAdapter(adapter);
+        driver.layout();
+
+        final UndoHelper<CountingAdapter, String> undoHelper = new UndoHelper.Builder<CountingAdapter, String>()
+                .withAdapter(adapter)
+                .withPresenter(new UndoPresenter() {
+                    @Override
+                    public void show(UndoEngine<?> engine) {
+                    }
+
+                    @Override
+                    public void dismiss() {
+                    }
+                })
+                .build();
+
+        final int[] positions = new int[ITEM_COUNT / 5];
+        for (int i = 0; i < positions.length; i++) {
+            positions[i] = i * 5;
+        }
+
+        Runnable remove = new Runnable() {
+            @Override
+            public void run() {
+                undoHelper.remove(positions);
+            }
+        };
+        Runnable undo = new Runnable() {
+            @Override
+            public void run() {
+                undoHelper.undo();
+            }
+        };
+
+        counters.start();
+        for (int i = 0; i < 10; i++) {
+            driver.frame(remove);
+            driver.frame(undo);
+        }
+        counters.stop();
+
+        undoHelper.commitAll();
+        baselines.check("bulkDelete", counters);
+    }
+}